@@ -1,14 +1,21 @@
 package diarsid.navigator;
 
+import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
 
 import diarsid.filesystem.api.Directory;
 import diarsid.filesystem.api.FSEntry;
 import diarsid.filesystem.api.FileSystem;
+import diarsid.navigator.filesystem.operations.CopyEngine;
 
+import static java.lang.System.currentTimeMillis;
 import static java.util.Collections.sort;
 
 public class F {
@@ -32,6 +39,55 @@ public class F {
         fileSystem.copy(whatToCopy, whereToCopy);
     }
 
+    private static void copyBenchmark() throws IOException {
+        FileSystem fileSystem = FileSystem.DEFAULT_INSTANCE;
+        CopyEngine copyEngine = new CopyEngine(8, 8 * 1024 * 1024, false);
+
+        Path source = Files.createTempDirectory("navigator-copy-source");
+        Path targetOfFileSystem = Files.createTempDirectory("navigator-copy-filesystem");
+        Path targetOfEngine = Files.createTempDirectory("navigator-copy-engine");
+
+        try {
+            Random random = new Random(0);
+            byte[] bytes = new byte[4096];
+            Path directory;
+            for ( int i = 0; i < 100; i++ ) {
+                directory = Files.createDirectories(source.resolve("d" + i).resolve("n" + (i % 10)));
+                for ( int j = 0; j < 200; j++ ) {
+                    random.nextBytes(bytes);
+                    Files.write(directory.resolve("f" + j), bytes);
+                }
+            }
+            bytes = new byte[64 * 1024 * 1024];
+            for ( int i = 0; i < 4; i++ ) {
+                random.nextBytes(bytes);
+                Files.write(source.resolve("large" + i), bytes);
+            }
+
+            Directory whatToCopy = fileSystem.toDirectory(source).get();
+            Directory whereToCopy = fileSystem.toDirectory(targetOfFileSystem).get();
+
+            long start = currentTimeMillis();
+            fileSystem.copy(whatToCopy, whereToCopy);
+            System.out.println("[COPY] file system: " + (currentTimeMillis() - start) + "ms");
+
+            System.out.println(copyEngine.copy(source, targetOfEngine));
+        }
+        finally {
+            deleteRecursively(source);
+            deleteRecursively(targetOfFileSystem);
+            deleteRecursively(targetOfEngine);
+        }
+    }
+
+    private static void deleteRecursively(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            for ( Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator ) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
     private static void delete() {
         FileSystem fileSystem = FileSystem.DEFAULT_INSTANCE;
 
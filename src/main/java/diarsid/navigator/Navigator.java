@@ -13,6 +13,7 @@ import static java.nio.file.FileSystems.getDefault;
 
 public class Navigator {
 
+    public final static boolean NAVIGATOR_DEBUG = Boolean.getBoolean("diarsid.navigator.debug");
     public final static NamedThreadSource NAVIGATOR_THREADS = new NamedThreadSource("diarsid.navigator");
     public final static Ignores NAVIGATOR_IGNORES = Ignores.INSTANCE;
     public final static FileSystem NAVIGATOR_FILE_SYSTEM = FileSystem.newInstance(
@@ -22,13 +23,15 @@ public class Navigator {
     private final NavigatorView navigatorView;
 
     public Navigator() {
+        StartupPhases startup = new StartupPhases();
         PlatformActions.awaitStartup();
+        startup.passed("platform");
         AtomicReference<NavigatorView> viewRef = new AtomicReference<>();
 
         CountDownLatch lock = new CountDownLatch(1);
 
         Platform.runLater(() -> {
-            viewRef.set(new NavigatorView());
+            viewRef.set(new NavigatorView(startup));
             lock.countDown();
         });
 
@@ -40,6 +43,7 @@ public class Navigator {
         }
 
         this.navigatorView = viewRef.get();
+        startup.passed("navigator");
     }
 
     public void openInNewTab(String path) {
@@ -17,6 +17,12 @@ import javafx.stage.Stage;
 import diarsid.filesystem.api.Directory;
 import diarsid.filesystem.api.FSEntry;
 import diarsid.filesystem.api.File;
+import diarsid.navigator.filesystem.DirectoriesWatches;
+import diarsid.navigator.filesystem.FSChangesCoalescer;
+import diarsid.navigator.filesystem.FSChangesDispatcher;
+import diarsid.navigator.filesystem.operations.CopyEngine;
+import diarsid.navigator.filesystem.operations.DeleteEngine;
+import diarsid.navigator.filesystem.operations.FileOperations;
 import diarsid.navigator.model.Tab;
 import diarsid.navigator.model.Tabs;
 import diarsid.navigator.view.FilesView;
@@ -25,6 +31,7 @@ import diarsid.navigator.view.dragdrop.DragAndDropNodes;
 import diarsid.navigator.view.dragdrop.DragAndDropObjectTransfer;
 import diarsid.navigator.view.fsentry.contextmenu.FSEntryContextMenuFactory;
 import diarsid.navigator.view.icons.Icons;
+import diarsid.navigator.view.operations.FileOperationsPanel;
 import diarsid.navigator.view.table.FilesTable;
 import diarsid.navigator.view.table.FilesTableItem;
 import diarsid.navigator.view.tabs.TabsPanel;
@@ -40,18 +47,31 @@ import static diarsid.navigator.Navigator.NAVIGATOR_IGNORES;
 
 class NavigatorView {
 
+    private static final int DIRECTORIES_WATCHES_BUDGET = 4096;
+    private static final long FS_CHANGES_DEBOUNCE_MILLIS = 100;
+    private static final long FS_CHANGES_MAX_LATENCY_MILLIS = 500;
+    private static final int FILE_OPERATIONS_THREADS = 4;
+    private static final int FILE_OPERATIONS_PER_DEVICE = 1;
+    private static final int COPY_SMALL_FILES_THREADS = 8;
+    private static final long COPY_LARGE_FILE_THRESHOLD = 8 * 1024 * 1024;
+    private static final boolean COPY_VERIFY = false;
+    private static final int DELETE_PARALLELISM = 4;
+
     private final Tabs tabs;
     private final Icons icons;
     private final DirectoriesTree directoriesTree;
     private final FilesTable filesTable;
     private final TabsPanel tabsPanel;
+    private final FileOperations fileOperations;
 
-    NavigatorView() {
+    NavigatorView(StartupPhases startup) {
+        startup.passed("view scheduled");
         Stage stage = new Stage();
         stage.initStyle(DECORATED);
 
         DragAndDropNodes<Label> dragAndDropLabels = new DragAndDropNodes<>("tab");
         this.icons = Icons.INSTANCE;
+        startup.passed("icons");
         this.tabs = new Tabs();
 
         Map<Class<? extends Node>, String> classes = new HashMap<>();
@@ -62,9 +82,25 @@ class NavigatorView {
                 classes);
 
         FrameSelection frameSelection = new FrameSelection();
+        DirectoriesWatches watches = new DirectoriesWatches(NAVIGATOR_FILE_SYSTEM, DIRECTORIES_WATCHES_BUDGET);
+        FSChangesCoalescer changes = new FSChangesCoalescer(
+                NAVIGATOR_FILE_SYSTEM,
+                watches,
+                FS_CHANGES_DEBOUNCE_MILLIS,
+                FS_CHANGES_MAX_LATENCY_MILLIS);
+        FSChangesDispatcher dispatcher = new FSChangesDispatcher(changes);
+        CopyEngine copyEngine = new CopyEngine(COPY_SMALL_FILES_THREADS, COPY_LARGE_FILE_THRESHOLD, COPY_VERIFY);
+        DeleteEngine deleteEngine = new DeleteEngine(DELETE_PARALLELISM);
+        this.fileOperations = new FileOperations(
+                NAVIGATOR_FILE_SYSTEM,
+                changes,
+                copyEngine,
+                deleteEngine,
+                FILE_OPERATIONS_THREADS,
+                FILE_OPERATIONS_PER_DEVICE);
 
         FSEntryContextMenuFactory contextMenuFactory = new FSEntryContextMenuFactory(
-                NAVIGATOR_FILE_SYSTEM,
+                this.fileOperations,
                 this::onFSEntryIgnored,
                 this::openInNewTab);
 
@@ -75,7 +111,10 @@ class NavigatorView {
                 frameSelection,
                 this::onTableItemInvoked,
                 this::onFSEntryRenamed,
-                dragAndDropFiles);
+                dragAndDropFiles,
+                dispatcher,
+                this.fileOperations);
+        startup.passed("files table");
 
         this.directoriesTree = new DirectoriesTree(
                 NAVIGATOR_FILE_SYSTEM,
@@ -83,7 +122,12 @@ class NavigatorView {
                 this.tabs,
                 contextMenuFactory,
                 this::onDirectorySelectedInTreeView,
-                dragAndDropFiles);
+                dragAndDropFiles,
+                watches,
+                changes,
+                dispatcher,
+                this.fileOperations);
+        startup.passed("directories tree");
 
         this.tabsPanel = new TabsPanel(
                 this.tabs,
@@ -100,7 +144,11 @@ class NavigatorView {
                 this::onBreadcrumbsBarDirectorySelected,
                 this.directoriesTree::selectDirectoryInCurrentTab);
 
-        FilesView filesView = new FilesView(this.tabsPanel, this.directoriesTree, this.filesTable, pathBreadcrumbsBar);
+        FileOperationsPanel fileOperationsPanel = new FileOperationsPanel(this.fileOperations);
+
+        FilesView filesView = new FilesView(
+                this.tabsPanel, this.directoriesTree, this.filesTable, pathBreadcrumbsBar, fileOperationsPanel);
+        startup.passed("tabs and breadcrumbs");
 
         Region view = (Region) filesView.node();
 
@@ -116,7 +164,12 @@ class NavigatorView {
         view.prefHeightProperty().bind(stage.getScene().heightProperty());
         view.prefWidthProperty().bind(stage.getScene().widthProperty());
 
+        startup.passed("scene");
+
         stage.show();
+        startup.passed("stage shown");
+
+        this.icons.warmUpInBackground();
     }
 
     public void openInNewTab(String path) {
@@ -236,6 +289,6 @@ class NavigatorView {
     }
 
     private void onFSEntryRenamed(FSEntry entry, String newName) {
-        NAVIGATOR_FILE_SYSTEM.rename(entry, newName);
+        this.fileOperations.rename(entry, newName);
     }
 }
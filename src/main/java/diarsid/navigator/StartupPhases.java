@@ -0,0 +1,21 @@
+package diarsid.navigator;
+
+import static java.lang.String.format;
+import static java.lang.System.currentTimeMillis;
+
+class StartupPhases {
+
+    private final long start;
+    private long previous;
+
+    StartupPhases() {
+        this.start = currentTimeMillis();
+        this.previous = this.start;
+    }
+
+    synchronized void passed(String phase) {
+        long now = currentTimeMillis();
+        System.out.println(format("[STARTUP] %s: %sms, total: %sms", phase, now - this.previous, now - this.start));
+        this.previous = now;
+    }
+}
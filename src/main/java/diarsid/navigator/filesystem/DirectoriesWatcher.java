@@ -0,0 +1,311 @@
+package diarsid.navigator.filesystem;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.lang.String.format;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import static diarsid.navigator.Navigator.NAVIGATOR_DEBUG;
+
+public class DirectoriesWatcher implements AutoCloseable {
+
+    public interface Listener {
+
+        void changed(Path directory, List<Path> added, List<Path> removed);
+    }
+
+    private static class Watched {
+
+        private final WatchKey key;
+        private final DirectorySnapshot snapshot;
+        private final boolean recursive;
+
+        private Watched(WatchKey key, DirectorySnapshot snapshot, boolean recursive) {
+            this.key = key;
+            this.snapshot = snapshot;
+            this.recursive = recursive;
+        }
+    }
+
+    private final WatchService watchService;
+    private final Listener listener;
+    private final Map<Path, Watched> watchedByPaths;
+    private final AtomicLong overflows;
+    private final AtomicLong rescans;
+
+    public DirectoriesWatcher(Listener listener) throws IOException {
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.listener = listener;
+        this.watchedByPaths = new HashMap<>();
+        this.overflows = new AtomicLong(0);
+        this.rescans = new AtomicLong(0);
+    }
+
+    public void register(Path directory, boolean recursive) throws IOException {
+        if ( this.watchedByPaths.containsKey(directory) ) {
+            return;
+        }
+
+        WatchKey key = directory.register(this.watchService, ENTRY_CREATE, ENTRY_DELETE);
+        DirectorySnapshot snapshot;
+        try {
+            snapshot = DirectorySnapshot.scan(directory);
+        }
+        catch (IOException e) {
+            key.cancel();
+            throw e;
+        }
+
+        this.watchedByPaths.put(directory, new Watched(key, snapshot, recursive));
+
+        if ( recursive ) {
+            for ( Path child : snapshot.paths() ) {
+                this.registerIfDirectory(child);
+            }
+        }
+    }
+
+    public void cancel(Path directory) {
+        Watched watched = this.watchedByPaths.remove(directory);
+
+        if ( nonNull(watched) ) {
+            watched.key.cancel();
+        }
+    }
+
+    public boolean isRegistered(Path directory) {
+        return this.watchedByPaths.containsKey(directory);
+    }
+
+    public int registeredCount() {
+        return this.watchedByPaths.size();
+    }
+
+    public long overflows() {
+        return this.overflows.get();
+    }
+
+    public long rescans() {
+        return this.rescans.get();
+    }
+
+    public boolean processPending(long timeoutMillis) throws InterruptedException {
+        WatchKey key = this.watchService.poll(timeoutMillis, MILLISECONDS);
+
+        if ( isNull(key) ) {
+            return false;
+        }
+
+        while ( nonNull(key) ) {
+            this.process(key);
+            key = this.watchService.poll();
+        }
+
+        return true;
+    }
+
+    private void process(WatchKey key) {
+        Path directory = (Path) key.watchable();
+        Watched watched = this.watchedByPaths.get(directory);
+        List<WatchEvent<?>> events = key.pollEvents();
+
+        if ( isNull(watched) || watched.key != key ) {
+            key.cancel();
+            return;
+        }
+
+        Set<Path> added = new LinkedHashSet<>();
+        List<Path> removed = new ArrayList<>();
+        List<Path> registered = new ArrayList<>();
+        boolean overflowed = false;
+
+        Path child;
+        String name;
+        for ( WatchEvent<?> event : events ) {
+            if ( event.kind() == OVERFLOW ) {
+                overflowed = true;
+                continue;
+            }
+
+            child = directory.resolve((Path) event.context());
+            name = child.getFileName().toString();
+
+            if ( event.kind() == ENTRY_CREATE ) {
+                if ( watched.snapshot.add(name) ) {
+                    added.add(child);
+                }
+                if ( watched.recursive && this.registerIfDirectory(child) ) {
+                    registered.add(child);
+                }
+            }
+            else if ( event.kind() == ENTRY_DELETE ) {
+                if ( watched.snapshot.remove(name) && ! added.remove(child) ) {
+                    removed.add(child);
+                }
+                if ( this.watchedByPaths.containsKey(child) ) {
+                    this.cancelSubtree(child);
+                }
+            }
+        }
+
+        boolean valid = key.reset();
+
+        if ( ! valid ) {
+            this.watchedByPaths.remove(directory);
+            if ( Files.isDirectory(directory, LinkOption.NOFOLLOW_LINKS) ) {
+                this.rescan(directory, watched, added, removed, registered);
+            }
+            else {
+                this.cancelSubtree(directory);
+                Path parent = directory.getParent();
+                if ( nonNull(parent) && ! this.watchedByPaths.containsKey(parent) ) {
+                    this.listener.changed(parent, emptyList(), singletonList(directory));
+                }
+            }
+        }
+        else if ( overflowed ) {
+            this.overflows.incrementAndGet();
+            this.rescan(directory, watched, added, removed, registered);
+        }
+
+        if ( ! added.isEmpty() || ! removed.isEmpty() ) {
+            this.listener.changed(directory, new ArrayList<>(added), removed);
+        }
+
+        for ( Path registeredDirectory : registered ) {
+            this.reportContentOf(registeredDirectory);
+        }
+    }
+
+    private void rescan(
+            Path directory,
+            Watched watched,
+            Set<Path> added,
+            List<Path> removed,
+            List<Path> registered) {
+        this.rescans.incrementAndGet();
+
+        try {
+            this.watchedByPaths.remove(directory);
+            watched.key.cancel();
+
+            WatchKey key = directory.register(this.watchService, ENTRY_CREATE, ENTRY_DELETE);
+            DirectorySnapshot actual = DirectorySnapshot.scan(directory);
+
+            List<Path> rescannedAdded = new ArrayList<>();
+            List<Path> rescannedRemoved = new ArrayList<>();
+            watched.snapshot.diffTo(actual, rescannedAdded, rescannedRemoved);
+
+            this.watchedByPaths.put(directory, new Watched(key, actual, watched.recursive));
+
+            added.addAll(rescannedAdded);
+            for ( Path removedPath : rescannedRemoved ) {
+                if ( ! added.remove(removedPath) ) {
+                    removed.add(removedPath);
+                }
+            }
+
+            for ( Path removedPath : rescannedRemoved ) {
+                if ( this.watchedByPaths.containsKey(removedPath) ) {
+                    this.cancelSubtree(removedPath);
+                }
+            }
+
+            if ( watched.recursive ) {
+                for ( Path child : actual.paths() ) {
+                    if ( this.registerIfDirectory(child) ) {
+                        registered.add(child);
+                    }
+                }
+            }
+
+            if ( NAVIGATOR_DEBUG ) {
+                System.out.println(format("[WATCHER] rescan %s, added: %s, removed: %s",
+                        directory, rescannedAdded.size(), rescannedRemoved.size()));
+            }
+        }
+        catch (IOException e) {
+            System.out.println(format("[WATCHER] rescan of %s failed: %s", directory, e.getMessage()));
+        }
+    }
+
+    private boolean registerIfDirectory(Path path) {
+        if ( this.watchedByPaths.containsKey(path) || ! Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS) ) {
+            return false;
+        }
+
+        try {
+            this.register(path, true);
+            return true;
+        }
+        catch (NoSuchFileException e) {
+            return false;
+        }
+        catch (IOException e) {
+            System.out.println(format("[WATCHER] cannot register %s: %s", path, e.getMessage()));
+            return false;
+        }
+    }
+
+    private void reportContentOf(Path directory) {
+        Watched watched = this.watchedByPaths.get(directory);
+
+        if ( isNull(watched) || watched.snapshot.size() == 0 ) {
+            return;
+        }
+
+        this.listener.changed(directory, watched.snapshot.paths(), emptyList());
+
+        if ( watched.recursive ) {
+            for ( Path child : watched.snapshot.paths() ) {
+                if ( this.watchedByPaths.containsKey(child) ) {
+                    this.reportContentOf(child);
+                }
+            }
+        }
+    }
+
+    private void cancelSubtree(Path root) {
+        Iterator<Map.Entry<Path, Watched>> watched = this.watchedByPaths.entrySet().iterator();
+        Map.Entry<Path, Watched> entry;
+        while ( watched.hasNext() ) {
+            entry = watched.next();
+            if ( entry.getKey().startsWith(root) ) {
+                entry.getValue().key.cancel();
+                watched.remove();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        for ( Watched watched : this.watchedByPaths.values() ) {
+            watched.key.cancel();
+        }
+        this.watchedByPaths.clear();
+        this.watchService.close();
+    }
+}
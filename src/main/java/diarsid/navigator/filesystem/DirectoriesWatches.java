@@ -0,0 +1,469 @@
+package diarsid.navigator.filesystem;
+
+import java.io.IOException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import diarsid.filesystem.api.Directory;
+import diarsid.filesystem.api.FSEntry;
+import diarsid.filesystem.api.FileSystem;
+import diarsid.support.objects.references.Result;
+
+import static java.lang.Math.min;
+import static java.lang.String.format;
+import static java.lang.System.currentTimeMillis;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+public class DirectoriesWatches {
+
+    public static class Metrics {
+
+        private final int budget;
+        private final int watched;
+        private final int polled;
+        private final int prioritized;
+        private final long registrations;
+        private final long releases;
+        private final long overflows;
+        private final long rescans;
+
+        private Metrics(
+                int budget,
+                int watched,
+                int polled,
+                int prioritized,
+                long registrations,
+                long releases,
+                long overflows,
+                long rescans) {
+            this.budget = budget;
+            this.watched = watched;
+            this.polled = polled;
+            this.prioritized = prioritized;
+            this.registrations = registrations;
+            this.releases = releases;
+            this.overflows = overflows;
+            this.rescans = rescans;
+        }
+
+        public int budget() {
+            return this.budget;
+        }
+
+        public int watched() {
+            return this.watched;
+        }
+
+        public int polled() {
+            return this.polled;
+        }
+
+        public int prioritized() {
+            return this.prioritized;
+        }
+
+        public long registrations() {
+            return this.registrations;
+        }
+
+        public long releases() {
+            return this.releases;
+        }
+
+        public long overflows() {
+            return this.overflows;
+        }
+
+        public long rescans() {
+            return this.rescans;
+        }
+
+        @Override
+        public String toString() {
+            return format("[WATCHES] watched:%s/%s polled:%s prioritized:%s registrations:%s releases:%s overflows:%s rescans:%s",
+                    this.watched, this.budget, this.polled, this.prioritized, this.registrations, this.releases,
+                    this.overflows, this.rescans);
+        }
+    }
+
+    private static class Polled {
+
+        private long lastModified;
+        private DirectorySnapshot snapshot;
+
+        private Polled(long lastModified, DirectorySnapshot snapshot) {
+            this.lastModified = lastModified;
+            this.snapshot = snapshot;
+        }
+
+        private static Polled capture(Path directory) {
+            return new Polled(lastModifiedOf(directory), snapshotOf(directory));
+        }
+    }
+
+    private static final long WAKE_PERIOD_MILLIS = 250;
+    private static final long POLL_PERIOD_MILLIS = 3000;
+    private static final long ABSENT = -1;
+    private static final long BUDGET_RESTORE_MIN_MILLIS = 30 * 1000;
+    private static final long BUDGET_RESTORE_MAX_MILLIS = 10 * 60 * 1000;
+
+    private final FileSystem fileSystem;
+    private final int budget;
+    private final DirectoriesWatcher watcher;
+    private final LinkedHashMap<Path, Integer> interestsCounts;
+    private final Set<Path> prioritized;
+    private final Set<Path> watched;
+    private final Map<Path, Polled> polled;
+    private final List<Consumer<List<FSEntry>>> addedListeners;
+    private final List<Consumer<List<Path>>> removedListeners;
+    private final AtomicLong registrations;
+    private final AtomicLong releases;
+    private final Object lock;
+    private boolean changed;
+    private int effectiveBudget;
+    private long budgetRestoreAt;
+    private long budgetRestoreDelayMillis;
+    private boolean budgetRestored;
+    private volatile int watchedCount;
+    private volatile int polledCount;
+
+    public DirectoriesWatches(FileSystem fileSystem, int budget) {
+        this.fileSystem = fileSystem;
+        this.budget = budget;
+        this.watcher = this.newWatcher();
+        this.interestsCounts = new LinkedHashMap<>(256, 0.75f, true);
+        this.prioritized = new LinkedHashSet<>();
+        this.watched = new HashSet<>();
+        this.polled = new HashMap<>();
+        this.addedListeners = new CopyOnWriteArrayList<>();
+        this.removedListeners = new CopyOnWriteArrayList<>();
+        this.registrations = new AtomicLong(0);
+        this.releases = new AtomicLong(0);
+        this.lock = new Object();
+        this.changed = false;
+        this.effectiveBudget = isNull(this.watcher) ? 0 : budget;
+        this.budgetRestoreAt = 0;
+        this.budgetRestoreDelayMillis = BUDGET_RESTORE_MIN_MILLIS;
+        this.budgetRestored = false;
+
+        Thread worker = new Thread(this::work, "diarsid.navigator.directories-watches");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public void listenForEntriesAdded(Consumer<List<FSEntry>> listener) {
+        this.addedListeners.add(listener);
+    }
+
+    public void listenForEntriesRemoved(Consumer<List<Path>> listener) {
+        this.removedListeners.add(listener);
+    }
+
+    public void watch(Directory directory) {
+        synchronized ( this.lock ) {
+            Integer count = this.interestsCounts.get(directory.path());
+            this.interestsCounts.put(directory.path(), isNull(count) ? 1 : count + 1);
+            this.changed = true;
+        }
+    }
+
+    public void release(Directory directory) {
+        synchronized ( this.lock ) {
+            Integer count = this.interestsCounts.get(directory.path());
+
+            if ( isNull(count) ) {
+                return;
+            }
+
+            if ( count > 1 ) {
+                this.interestsCounts.put(directory.path(), count - 1);
+            }
+            else {
+                this.interestsCounts.remove(directory.path());
+                this.changed = true;
+            }
+        }
+    }
+
+    public void prioritize(Collection<Directory> directories) {
+        synchronized ( this.lock ) {
+            this.prioritized.clear();
+            for ( Directory directory : directories ) {
+                this.prioritized.add(directory.path());
+            }
+            this.changed = true;
+        }
+    }
+
+    public Metrics metrics() {
+        int prioritizedCount;
+        synchronized ( this.lock ) {
+            prioritizedCount = this.prioritized.size();
+        }
+
+        return new Metrics(
+                this.budget,
+                this.watchedCount,
+                this.polledCount,
+                prioritizedCount,
+                this.registrations.get(),
+                this.releases.get(),
+                isNull(this.watcher) ? 0 : this.watcher.overflows(),
+                isNull(this.watcher) ? 0 : this.watcher.rescans());
+    }
+
+    private void work() {
+        long lastPoll = currentTimeMillis();
+        while ( true ) {
+            try {
+                if ( isNull(this.watcher) ) {
+                    Thread.sleep(WAKE_PERIOD_MILLIS);
+                }
+                else {
+                    this.watcher.processPending(WAKE_PERIOD_MILLIS);
+                }
+            }
+            catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            try {
+                if ( nonNull(this.watcher) && this.watcher.registeredCount() != this.watched.size() ) {
+                    synchronized ( this.lock ) {
+                        this.changed = true;
+                    }
+                }
+
+                this.restoreBudgetIfDue();
+                this.assignIfChanged();
+
+                if ( currentTimeMillis() - lastPoll >= POLL_PERIOD_MILLIS ) {
+                    this.pollAll();
+                    lastPoll = currentTimeMillis();
+                }
+            }
+            catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void onWatchedChanged(Path directory, List<Path> added, List<Path> removed) {
+        this.publish(new HashSet<>(added), removed);
+    }
+
+    private void restoreBudgetIfDue() {
+        if ( isNull(this.watcher) || this.effectiveBudget >= this.budget || currentTimeMillis() < this.budgetRestoreAt ) {
+            return;
+        }
+
+        this.effectiveBudget = this.budget;
+        this.budgetRestored = true;
+        synchronized ( this.lock ) {
+            this.changed = true;
+        }
+    }
+
+    private void assignIfChanged() {
+        List<Path> wanted;
+        synchronized ( this.lock ) {
+            if ( ! this.changed ) {
+                return;
+            }
+            this.changed = false;
+
+            wanted = new ArrayList<>(this.prioritized);
+            List<Path> interests = new ArrayList<>(this.interestsCounts.keySet());
+            Path path;
+            for ( int i = interests.size() - 1; i >= 0; i-- ) {
+                path = interests.get(i);
+                if ( ! this.prioritized.contains(path) ) {
+                    wanted.add(path);
+                }
+            }
+        }
+
+        Set<Path> affordable = new HashSet<>(wanted.subList(0, min(wanted.size(), this.effectiveBudget)));
+
+        Iterator<Path> watchedPaths = this.watched.iterator();
+        Path watchedPath;
+        while ( watchedPaths.hasNext() ) {
+            watchedPath = watchedPaths.next();
+            if ( ! affordable.contains(watchedPath) || ! this.watcher.isRegistered(watchedPath) ) {
+                this.watcher.cancel(watchedPath);
+                watchedPaths.remove();
+                this.releases.incrementAndGet();
+            }
+        }
+
+        for ( Path path : wanted ) {
+            if ( this.watched.contains(path) ) {
+                continue;
+            }
+
+            if ( this.watched.size() < this.effectiveBudget && this.register(path) ) {
+                Polled wasPolled = this.polled.remove(path);
+                if ( nonNull(wasPolled) ) {
+                    this.publishChangedSince(path, wasPolled);
+                }
+            }
+            else {
+                this.polled.computeIfAbsent(path, Polled::capture);
+            }
+        }
+
+        Set<Path> wantedSet = new HashSet<>(wanted);
+        this.polled.keySet().removeIf(path -> ! wantedSet.contains(path) || this.watched.contains(path));
+
+        if ( this.budgetRestored ) {
+            this.budgetRestored = false;
+            this.budgetRestoreDelayMillis = BUDGET_RESTORE_MIN_MILLIS;
+        }
+
+        this.watchedCount = this.watched.size();
+        this.polledCount = this.polled.size();
+    }
+
+    private boolean register(Path directory) {
+        try {
+            this.watcher.register(directory, false);
+            this.watched.add(directory);
+            this.registrations.incrementAndGet();
+            return true;
+        }
+        catch (NoSuchFileException | NotDirectoryException | AccessDeniedException e) {
+            return false;
+        }
+        catch (IOException e) {
+            this.effectiveBudget = this.watched.size();
+            this.budgetRestored = false;
+            this.budgetRestoreAt = currentTimeMillis() + this.budgetRestoreDelayMillis;
+            System.out.println(format("[WATCHES] watch refused for %s, budget lowered to %s for %ss: %s",
+                    directory, this.effectiveBudget, this.budgetRestoreDelayMillis / 1000, e.getMessage()));
+            this.budgetRestoreDelayMillis = min(this.budgetRestoreDelayMillis * 2, BUDGET_RESTORE_MAX_MILLIS);
+            return false;
+        }
+    }
+
+    private void publishChangedSince(Path directory, Polled wasPolled) {
+        DirectorySnapshot snapshot = snapshotOf(directory);
+        List<Path> added = new ArrayList<>();
+        List<Path> removed = new ArrayList<>();
+        wasPolled.snapshot.diffTo(snapshot, added, removed);
+
+        if ( ! added.isEmpty() || ! removed.isEmpty() ) {
+            this.publish(new HashSet<>(added), removed);
+        }
+    }
+
+    private void pollAll() {
+        Path directory;
+        Polled state;
+        long modified;
+        DirectorySnapshot snapshot;
+        List<Path> added;
+        List<Path> removed;
+        for ( Map.Entry<Path, Polled> polled : this.polled.entrySet() ) {
+            directory = polled.getKey();
+            state = polled.getValue();
+            modified = lastModifiedOf(directory);
+
+            if ( modified == state.lastModified ) {
+                continue;
+            }
+
+            snapshot = modified == ABSENT ? DirectorySnapshot.empty(directory) : snapshotOf(directory);
+
+            added = new ArrayList<>();
+            removed = new ArrayList<>();
+            state.snapshot.diffTo(snapshot, added, removed);
+
+            if ( modified == ABSENT ) {
+                removed.add(directory);
+            }
+
+            state.lastModified = modified;
+            state.snapshot = snapshot;
+
+            this.publish(new HashSet<>(added), removed);
+        }
+    }
+
+    private void publish(Set<Path> addedPaths, List<Path> removedPaths) {
+        if ( ! removedPaths.isEmpty() ) {
+            this.removedListeners.forEach(listener -> listener.accept(removedPaths));
+        }
+
+        if ( ! addedPaths.isEmpty() ) {
+            List<FSEntry> added = this.entriesOf(addedPaths);
+            if ( ! added.isEmpty() ) {
+                this.addedListeners.forEach(listener -> listener.accept(added));
+            }
+        }
+    }
+
+    private List<FSEntry> entriesOf(Set<Path> paths) {
+        List<FSEntry> entries = new ArrayList<>(paths.size());
+
+        Result<FSEntry> entry;
+        for ( Path path : paths ) {
+            try {
+                entry = this.fileSystem.toFSEntry(path);
+                if ( entry.isPresent() ) {
+                    entries.add(entry.get());
+                }
+            }
+            catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+
+        return entries;
+    }
+
+    private static long lastModifiedOf(Path directory) {
+        try {
+            return Files.getLastModifiedTime(directory).toMillis();
+        }
+        catch (IOException | SecurityException e) {
+            return ABSENT;
+        }
+    }
+
+    private static DirectorySnapshot snapshotOf(Path directory) {
+        try {
+            return DirectorySnapshot.scan(directory);
+        }
+        catch (IOException | SecurityException e) {
+            return DirectorySnapshot.empty(directory);
+        }
+    }
+
+    private DirectoriesWatcher newWatcher() {
+        try {
+            return new DirectoriesWatcher(this::onWatchedChanged);
+        }
+        catch (IOException | UnsupportedOperationException e) {
+            System.out.println("[WATCHES] watch service is not available, all directories will be polled");
+            return null;
+        }
+    }
+}
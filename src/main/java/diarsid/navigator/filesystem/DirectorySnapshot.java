@@ -0,0 +1,115 @@
+package diarsid.navigator.filesystem;
+
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Collections.binarySearch;
+import static java.util.Collections.sort;
+
+class DirectorySnapshot {
+
+    private final Path directory;
+    private final List<String> names;
+
+    private DirectorySnapshot(Path directory, List<String> names) {
+        this.directory = directory;
+        this.names = names;
+    }
+
+    static DirectorySnapshot empty(Path directory) {
+        return new DirectorySnapshot(directory, new ArrayList<>());
+    }
+
+    static DirectorySnapshot scan(Path directory) throws IOException {
+        List<String> names = new ArrayList<>();
+
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for ( Path entry : entries ) {
+                names.add(entry.getFileName().toString());
+            }
+        }
+        catch (DirectoryIteratorException e) {
+            throw e.getCause();
+        }
+
+        sort(names);
+        return new DirectorySnapshot(directory, names);
+    }
+
+    Path directory() {
+        return this.directory;
+    }
+
+    int size() {
+        return this.names.size();
+    }
+
+    boolean add(String name) {
+        int index = binarySearch(this.names, name);
+
+        if ( index >= 0 ) {
+            return false;
+        }
+
+        this.names.add(-(index + 1), name);
+        return true;
+    }
+
+    boolean remove(String name) {
+        int index = binarySearch(this.names, name);
+
+        if ( index < 0 ) {
+            return false;
+        }
+
+        this.names.remove(index);
+        return true;
+    }
+
+    List<Path> paths() {
+        List<Path> paths = new ArrayList<>(this.names.size());
+        for ( String name : this.names ) {
+            paths.add(this.directory.resolve(name));
+        }
+        return paths;
+    }
+
+    void diffTo(DirectorySnapshot newer, List<Path> added, List<Path> removed) {
+        List<String> before = this.names;
+        List<String> after = newer.names;
+
+        int i = 0;
+        int j = 0;
+        int comparison;
+        while ( i < before.size() && j < after.size() ) {
+            comparison = before.get(i).compareTo(after.get(j));
+            if ( comparison == 0 ) {
+                i++;
+                j++;
+            }
+            else if ( comparison < 0 ) {
+                removed.add(this.directory.resolve(before.get(i)));
+                i++;
+            }
+            else {
+                added.add(this.directory.resolve(after.get(j)));
+                j++;
+            }
+        }
+
+        while ( i < before.size() ) {
+            removed.add(this.directory.resolve(before.get(i)));
+            i++;
+        }
+
+        while ( j < after.size() ) {
+            added.add(this.directory.resolve(after.get(j)));
+            j++;
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package diarsid.navigator.filesystem;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+
+import diarsid.filesystem.api.FSEntry;
+import diarsid.filesystem.api.FileSystem;
+
+import static java.lang.String.format;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import static diarsid.navigator.Navigator.NAVIGATOR_DEBUG;
+
+public class FSChangesCoalescer {
+
+    public class Muting {
+
+        private final Path root;
+        private boolean released;
+
+        private Muting(Path root) {
+            this.root = root;
+            this.released = false;
+        }
+
+        public void release(List<Path> removed) {
+            if ( this.released ) {
+                return;
+            }
+
+            this.released = true;
+            FSChangesCoalescer.this.unmute(this.root, removed);
+        }
+    }
+
+    private static final long REMOVED_GRACE_MILLIS = 5000;
+
+    private static class Change {
+
+        private final boolean existedBefore;
+        private FSEntry presentEntry;
+
+        private Change(boolean existedBefore) {
+            this.existedBefore = existedBefore;
+        }
+    }
+
+    private final long debounceNanos;
+    private final long maxLatencyNanos;
+    private final Map<Path, Change> changesByPaths;
+    private final Set<Path> mutedRoots;
+    private final Map<Path, Long> reportedRemovedUntilNanos;
+    private final List<Consumer<List<FSEntry>>> addedListeners;
+    private final List<Consumer<List<Path>>> removedListeners;
+    private final AnimationTimer pulses;
+    private final Object lock;
+    private long firstEventNanos;
+    private long lastEventNanos;
+    private int eventsCount;
+    private boolean scheduled;
+
+    public FSChangesCoalescer(
+            FileSystem fileSystem,
+            DirectoriesWatches watches,
+            long debounceMillis,
+            long maxLatencyMillis) {
+        this.debounceNanos = MILLISECONDS.toNanos(debounceMillis);
+        this.maxLatencyNanos = MILLISECONDS.toNanos(maxLatencyMillis);
+        this.changesByPaths = new LinkedHashMap<>();
+        this.mutedRoots = new HashSet<>();
+        this.reportedRemovedUntilNanos = new HashMap<>();
+        this.addedListeners = new CopyOnWriteArrayList<>();
+        this.removedListeners = new CopyOnWriteArrayList<>();
+        this.lock = new Object();
+        this.scheduled = false;
+
+        this.pulses = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                FSChangesCoalescer.this.onPulse();
+            }
+        };
+
+        fileSystem.changes().listenForEntriesAdded(this::added);
+        fileSystem.changes().listenForEntriesRemoved(this::removed);
+        watches.listenForEntriesAdded(this::added);
+        watches.listenForEntriesRemoved(this::removed);
+    }
+
+    public void listenForEntriesAdded(Consumer<List<FSEntry>> listener) {
+        this.addedListeners.add(listener);
+    }
+
+    public void listenForEntriesRemoved(Consumer<List<Path>> listener) {
+        this.removedListeners.add(listener);
+    }
+
+    public Muting mute(Path root) {
+        synchronized ( this.lock ) {
+            this.mutedRoots.add(root);
+        }
+        return new Muting(root);
+    }
+
+    public void added(List<FSEntry> entries) {
+        synchronized ( this.lock ) {
+            Change change;
+            int accepted = 0;
+            for ( FSEntry entry : entries ) {
+                if ( this.isMuted(entry.path()) ) {
+                    continue;
+                }
+                this.forgetReportedRemovedOf(entry.path());
+                accepted++;
+                change = this.changesByPaths.get(entry.path());
+                if ( isNull(change) ) {
+                    change = new Change(false);
+                    this.changesByPaths.put(entry.path(), change);
+                }
+                change.presentEntry = entry;
+            }
+            if ( accepted > 0 ) {
+                this.accepted(accepted);
+            }
+        }
+    }
+
+    public void removed(List<Path> paths) {
+        synchronized ( this.lock ) {
+            this.removedIf(paths, true);
+        }
+    }
+
+    private void unmute(Path root, List<Path> removed) {
+        synchronized ( this.lock ) {
+            this.mutedRoots.remove(root);
+
+            long now = System.nanoTime();
+            this.reportedRemovedUntilNanos.values().removeIf(until -> until < now);
+            long until = now + MILLISECONDS.toNanos(REMOVED_GRACE_MILLIS);
+            for ( Path path : removed ) {
+                this.reportedRemovedUntilNanos.put(path, until);
+            }
+
+            this.removedIf(removed, false);
+        }
+    }
+
+    private boolean isMuted(Path path) {
+        if ( this.mutedRoots.isEmpty() ) {
+            return false;
+        }
+
+        for ( Path parent = path; nonNull(parent); parent = parent.getParent() ) {
+            if ( this.mutedRoots.contains(parent) ) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private boolean isReportedRemoved(Path path) {
+        if ( this.reportedRemovedUntilNanos.isEmpty() ) {
+            return false;
+        }
+
+        long now = System.nanoTime();
+        Long until;
+        for ( Path parent = path; nonNull(parent); parent = parent.getParent() ) {
+            until = this.reportedRemovedUntilNanos.get(parent);
+            if ( nonNull(until) ) {
+                if ( until >= now ) {
+                    return true;
+                }
+                this.reportedRemovedUntilNanos.remove(parent);
+            }
+        }
+
+        return false;
+    }
+
+    private void forgetReportedRemovedOf(Path path) {
+        if ( this.reportedRemovedUntilNanos.isEmpty() ) {
+            return;
+        }
+
+        for ( Path parent = path; nonNull(parent); parent = parent.getParent() ) {
+            this.reportedRemovedUntilNanos.remove(parent);
+        }
+    }
+
+    private void removedIf(List<Path> paths, boolean unlessMuted) {
+        Change change;
+        int accepted = 0;
+        for ( Path path : paths ) {
+            if ( unlessMuted && ( this.isMuted(path) || this.isReportedRemoved(path) ) ) {
+                continue;
+            }
+            accepted++;
+            change = this.changesByPaths.get(path);
+            if ( isNull(change) ) {
+                change = new Change(true);
+                this.changesByPaths.put(path, change);
+            }
+            change.presentEntry = null;
+        }
+        if ( accepted > 0 ) {
+            this.accepted(accepted);
+        }
+    }
+
+    private void accepted(int events) {
+        long now = System.nanoTime();
+
+        if ( this.eventsCount == 0 ) {
+            this.firstEventNanos = now;
+        }
+        this.lastEventNanos = now;
+        this.eventsCount = this.eventsCount + events;
+
+        if ( ! this.scheduled ) {
+            this.scheduled = true;
+            Platform.runLater(this.pulses::start);
+        }
+    }
+
+    private void onPulse() {
+        List<FSEntry> added = new ArrayList<>();
+        List<Path> removed = new ArrayList<>();
+        int events;
+
+        synchronized ( this.lock ) {
+            long now = System.nanoTime();
+            boolean quiet = now - this.lastEventNanos >= this.debounceNanos;
+            boolean overdue = now - this.firstEventNanos >= this.maxLatencyNanos;
+
+            if ( ! quiet && ! overdue ) {
+                return;
+            }
+
+            Path path;
+            Change change;
+            for ( Map.Entry<Path, Change> pathChange : this.changesByPaths.entrySet() ) {
+                path = pathChange.getKey();
+                change = pathChange.getValue();
+
+                if ( change.existedBefore ) {
+                    removed.add(path);
+                }
+
+                if ( nonNull(change.presentEntry) ) {
+                    added.add(change.presentEntry);
+                }
+            }
+
+            events = this.eventsCount;
+            this.changesByPaths.clear();
+            this.eventsCount = 0;
+            this.scheduled = false;
+            this.pulses.stop();
+        }
+
+        if ( added.isEmpty() && removed.isEmpty() ) {
+            return;
+        }
+
+        if ( NAVIGATOR_DEBUG ) {
+            System.out.println(format("[FS CHANGES] events: %s, added: %s, removed: %s", events, added.size(), removed.size()));
+        }
+
+        if ( ! removed.isEmpty() ) {
+            for ( Consumer<List<Path>> listener : this.removedListeners ) {
+                listener.accept(removed);
+            }
+        }
+
+        if ( ! added.isEmpty() ) {
+            for ( Consumer<List<FSEntry>> listener : this.addedListeners ) {
+                listener.accept(added);
+            }
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package diarsid.navigator.filesystem;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import diarsid.filesystem.api.FSEntry;
+
+import static java.util.Collections.emptyList;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+public class FSChangesDispatcher {
+
+    public static class Subscription {
+
+        private final FSChangesDispatcher dispatcher;
+        private final Path directory;
+        private final Consumer<List<FSEntry>> onEntriesAdded;
+        private final Consumer<List<Path>> onEntriesRemoved;
+        private boolean cancelled;
+
+        private Subscription(
+                FSChangesDispatcher dispatcher,
+                Path directory,
+                Consumer<List<FSEntry>> onEntriesAdded,
+                Consumer<List<Path>> onEntriesRemoved) {
+            this.dispatcher = dispatcher;
+            this.directory = directory;
+            this.onEntriesAdded = onEntriesAdded;
+            this.onEntriesRemoved = onEntriesRemoved;
+            this.cancelled = false;
+        }
+
+        public Path directory() {
+            return this.directory;
+        }
+
+        public void cancel() {
+            if ( this.cancelled ) {
+                return;
+            }
+
+            this.cancelled = true;
+            this.dispatcher.unsubscribe(this);
+        }
+    }
+
+    private final Map<Path, List<Subscription>> subscriptionsByDirectories;
+    private final Map<Path, Integer> subscriptionsCountsUnder;
+
+    public FSChangesDispatcher(FSChangesCoalescer changes) {
+        this.subscriptionsByDirectories = new HashMap<>();
+        this.subscriptionsCountsUnder = new HashMap<>();
+
+        changes.listenForEntriesAdded(this::dispatchAdded);
+        changes.listenForEntriesRemoved(this::dispatchRemoved);
+    }
+
+    public Subscription subscribe(
+            Path directory,
+            Consumer<List<FSEntry>> onEntriesAdded,
+            Consumer<List<Path>> onEntriesRemoved) {
+        Subscription subscription = new Subscription(this, directory, onEntriesAdded, onEntriesRemoved);
+
+        this.subscriptionsByDirectories
+                .computeIfAbsent(directory, (path) -> new ArrayList<>(1))
+                .add(subscription);
+
+        Path parent = directory.getParent();
+        while ( nonNull(parent) ) {
+            this.subscriptionsCountsUnder.merge(parent, 1, Integer::sum);
+            parent = parent.getParent();
+        }
+
+        return subscription;
+    }
+
+    private void unsubscribe(Subscription subscription) {
+        List<Subscription> subscriptions = this.subscriptionsByDirectories.get(subscription.directory);
+
+        if ( isNull(subscriptions) || ! subscriptions.remove(subscription) ) {
+            return;
+        }
+
+        if ( subscriptions.isEmpty() ) {
+            this.subscriptionsByDirectories.remove(subscription.directory);
+        }
+
+        Path parent = subscription.directory.getParent();
+        while ( nonNull(parent) ) {
+            this.subscriptionsCountsUnder.computeIfPresent(parent, (path, count) -> count > 1 ? count - 1 : null);
+            parent = parent.getParent();
+        }
+    }
+
+    private void dispatchAdded(List<FSEntry> entries) {
+        Map<Path, List<FSEntry>> entriesByParents = new HashMap<>();
+
+        Path parent;
+        for ( FSEntry entry : entries ) {
+            parent = entry.path().getParent();
+            if ( nonNull(parent) && this.subscriptionsByDirectories.containsKey(parent) ) {
+                entriesByParents.computeIfAbsent(parent, (path) -> new ArrayList<>()).add(entry);
+            }
+        }
+
+        for ( Map.Entry<Path, List<FSEntry>> parentEntries : entriesByParents.entrySet() ) {
+            for ( Subscription subscription : this.subscriptionsOf(parentEntries.getKey()) ) {
+                if ( ! subscription.cancelled ) {
+                    subscription.onEntriesAdded.accept(parentEntries.getValue());
+                }
+            }
+        }
+    }
+
+    private void dispatchRemoved(List<Path> paths) {
+        Map<Subscription, List<Path>> pathsBySubscriptions = new LinkedHashMap<>();
+
+        Path parent;
+        for ( Path path : paths ) {
+            parent = path.getParent();
+            if ( nonNull(parent) ) {
+                this.collect(this.subscriptionsByDirectories.get(parent), path, pathsBySubscriptions);
+            }
+
+            this.collect(this.subscriptionsByDirectories.get(path), path, pathsBySubscriptions);
+
+            if ( this.subscriptionsCountsUnder.containsKey(path) ) {
+                for ( Map.Entry<Path, List<Subscription>> subscriptions : this.subscriptionsByDirectories.entrySet() ) {
+                    if ( subscriptions.getKey().startsWith(path) && ! subscriptions.getKey().equals(path) ) {
+                        this.collect(subscriptions.getValue(), path, pathsBySubscriptions);
+                    }
+                }
+            }
+        }
+
+        for ( Map.Entry<Subscription, List<Path>> subscriptionPaths : pathsBySubscriptions.entrySet() ) {
+            if ( ! subscriptionPaths.getKey().cancelled ) {
+                subscriptionPaths.getKey().onEntriesRemoved.accept(subscriptionPaths.getValue());
+            }
+        }
+    }
+
+    private void collect(List<Subscription> subscriptions, Path path, Map<Subscription, List<Path>> pathsBySubscriptions) {
+        if ( isNull(subscriptions) ) {
+            return;
+        }
+
+        for ( Subscription subscription : subscriptions ) {
+            pathsBySubscriptions.computeIfAbsent(subscription, (s) -> new ArrayList<>()).add(path);
+        }
+    }
+
+    private List<Subscription> subscriptionsOf(Path directory) {
+        List<Subscription> subscriptions = this.subscriptionsByDirectories.get(directory);
+        return isNull(subscriptions) ? emptyList() : new ArrayList<>(subscriptions);
+    }
+}
@@ -0,0 +1,442 @@
+package diarsid.navigator.filesystem.operations;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.DosFileAttributeView;
+import java.nio.file.attribute.DosFileAttributes;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.zip.CRC32C;
+
+import static java.lang.String.format;
+import static java.lang.System.currentTimeMillis;
+import static java.nio.file.StandardCopyOption.COPY_ATTRIBUTES;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Objects.nonNull;
+
+public class CopyEngine {
+
+    public interface Progress {
+
+        Progress NONE = new Progress() {
+
+            @Override
+            public void found(int entries, long bytes) {
+            }
+
+            @Override
+            public void copied(int entries, long bytes) {
+            }
+        };
+
+        void found(int entries, long bytes);
+
+        void copied(int entries, long bytes);
+    }
+
+    public static class Report {
+
+        private final int files;
+        private final int directories;
+        private final long bytes;
+        private final long millis;
+
+        private Report(int files, int directories, long bytes, long millis) {
+            this.files = files;
+            this.directories = directories;
+            this.bytes = bytes;
+            this.millis = millis;
+        }
+
+        public int files() {
+            return this.files;
+        }
+
+        public int directories() {
+            return this.directories;
+        }
+
+        public long bytes() {
+            return this.bytes;
+        }
+
+        public long millis() {
+            return this.millis;
+        }
+
+        @Override
+        public String toString() {
+            double megabytes = this.bytes / (1024.0 * 1024.0);
+            double seconds = Math.max(this.millis, 1) / 1000.0;
+            return format("[COPY] files:%s directories:%s bytes:%s time:%sms throughput:%.1fMB/s",
+                    this.files, this.directories, this.bytes, this.millis, megabytes / seconds);
+        }
+    }
+
+    private static class FileToCopy {
+
+        private final Path source;
+        private final Path target;
+        private final long size;
+
+        private FileToCopy(Path source, Path target, long size) {
+            this.source = source;
+            this.target = target;
+            this.size = size;
+        }
+    }
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final long TRANSFER_CHUNK_SIZE = 64 * 1024 * 1024;
+
+    private final long largeFileThreshold;
+    private final boolean verify;
+    private final ExecutorService smallFilesWorkers;
+    private final Map<Object, Object> largeFilesLocksByDevices;
+    private final ThreadLocal<ByteBuffer> buffers;
+
+    public CopyEngine(int smallFilesThreads, long largeFileThreshold, boolean verify) {
+        this.largeFileThreshold = largeFileThreshold;
+        this.verify = verify;
+        this.largeFilesLocksByDevices = new ConcurrentHashMap<>();
+        this.buffers = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+
+        AtomicInteger threadsCounter = new AtomicInteger(0);
+        this.smallFilesWorkers = Executors.newFixedThreadPool(smallFilesThreads, runnable -> {
+            Thread thread = new Thread(runnable, "diarsid.navigator.copy-engine-" + threadsCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public Report copy(Path source, Path targetDirectory) throws IOException {
+        return this.copy(source, targetDirectory, Progress.NONE, () -> false);
+    }
+
+    public Report copy(Path source, Path targetDirectory, Progress progress, BooleanSupplier cancelled) throws IOException {
+        long start = currentTimeMillis();
+        Path target = targetDirectory.resolve(source.getFileName().toString());
+
+        List<FileToCopy> smallFiles = new ArrayList<>();
+        List<FileToCopy> largeFiles = new ArrayList<>();
+        List<Path> sourceDirectories = new ArrayList<>();
+        AtomicInteger directories = new AtomicInteger(0);
+        AtomicLong bytes = new AtomicLong(0);
+
+        List<Future<?>> smallFilesCopying = new ArrayList<>();
+
+        try {
+            this.collect(source, target, smallFiles, largeFiles, sourceDirectories, directories, cancelled);
+
+            long bytesToCopy = 0;
+            for ( FileToCopy file : smallFiles ) {
+                bytesToCopy = bytesToCopy + file.size;
+            }
+            for ( FileToCopy file : largeFiles ) {
+                bytesToCopy = bytesToCopy + file.size;
+            }
+            progress.found(smallFiles.size() + largeFiles.size() + directories.get(), bytesToCopy);
+            progress.copied(directories.get(), 0);
+
+            for ( FileToCopy file : smallFiles ) {
+                smallFilesCopying.add(this.smallFilesWorkers.submit(() -> {
+                    if ( cancelled.getAsBoolean() ) {
+                        throw new CancellationException();
+                    }
+                    this.copyFile(file, progress, cancelled);
+                    bytes.addAndGet(file.size);
+                    return null;
+                }));
+            }
+
+            if ( ! largeFiles.isEmpty() ) {
+                Object largeFilesLock = this.largeFilesLocksByDevices.computeIfAbsent(
+                        FileOperations.deviceOf(targetDirectory), (device) -> new Object());
+
+                for ( FileToCopy file : largeFiles ) {
+                    if ( cancelled.getAsBoolean() ) {
+                        throw new CancellationException();
+                    }
+                    synchronized ( largeFilesLock ) {
+                        this.copyFile(file, progress, cancelled);
+                    }
+                    bytes.addAndGet(file.size);
+                }
+            }
+
+            awaitAll(smallFilesCopying);
+
+            for ( int i = sourceDirectories.size() - 1; i >= 0; i-- ) {
+                copyAttributes(sourceDirectories.get(i), target.resolve(source.relativize(sourceDirectories.get(i)).toString()));
+            }
+        }
+        catch (IOException | RuntimeException e) {
+            smallFilesCopying.forEach(copying -> copying.cancel(false));
+            awaitQuietly(smallFilesCopying);
+            if ( directories.get() > 0 ) {
+                deleteQuietly(target);
+            }
+            throw e;
+        }
+
+        return new Report(
+                smallFiles.size() + largeFiles.size(),
+                directories.get(),
+                bytes.get(),
+                currentTimeMillis() - start);
+    }
+
+    private void collect(
+            Path source,
+            Path target,
+            List<FileToCopy> smallFiles,
+            List<FileToCopy> largeFiles,
+            List<Path> sourceDirectories,
+            AtomicInteger directories,
+            BooleanSupplier cancelled) throws IOException {
+        Files.walkFileTree(source, new SimpleFileVisitor<>() {
+
+            @Override
+            public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) throws IOException {
+                if ( cancelled.getAsBoolean() ) {
+                    throw new CancellationException();
+                }
+                Files.createDirectory(target.resolve(source.relativize(directory).toString()));
+                sourceDirectories.add(directory);
+                directories.incrementAndGet();
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                Path fileTarget = file.equals(source) ? target : target.resolve(source.relativize(file).toString());
+
+                if ( attributes.isRegularFile() ) {
+                    FileToCopy fileToCopy = new FileToCopy(file, fileTarget, attributes.size());
+                    if ( attributes.size() < CopyEngine.this.largeFileThreshold ) {
+                        smallFiles.add(fileToCopy);
+                    }
+                    else {
+                        largeFiles.add(fileToCopy);
+                    }
+                }
+                else {
+                    Files.copy(file, fileTarget, LinkOption.NOFOLLOW_LINKS, COPY_ATTRIBUTES);
+                }
+
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path directory, IOException e) throws IOException {
+                if ( nonNull(e) ) {
+                    throw e;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private void copyFile(FileToCopy file, Progress progress, BooleanSupplier cancelled) throws IOException {
+        try (FileChannel in = FileChannel.open(file.source, READ)) {
+            FileChannel out = FileChannel.open(file.target, CREATE_NEW, WRITE);
+
+            try (out) {
+                long size = in.size();
+                long position = 0;
+                long transferred;
+                while ( position < size ) {
+                    if ( cancelled.getAsBoolean() ) {
+                        throw new CancellationException();
+                    }
+                    transferred = in.transferTo(position, Math.min(size - position, TRANSFER_CHUNK_SIZE), out);
+                    if ( transferred <= 0 ) {
+                        break;
+                    }
+                    position = position + transferred;
+                    progress.copied(0, transferred);
+                }
+
+                if ( position < size ) {
+                    this.copyBuffered(in, out, position, progress, cancelled);
+                }
+            }
+            catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(file.target);
+                throw e;
+            }
+        }
+
+        if ( this.verify ) {
+            this.verifyCopied(file);
+        }
+
+        copyAttributes(file.source, file.target);
+        progress.copied(1, 0);
+    }
+
+    private void copyBuffered(
+            FileChannel in,
+            FileChannel out,
+            long fromPosition,
+            Progress progress,
+            BooleanSupplier cancelled) throws IOException {
+        ByteBuffer buffer = this.buffers.get();
+        in.position(fromPosition);
+        out.position(fromPosition);
+
+        buffer.clear();
+        while ( in.read(buffer) >= 0 || buffer.position() > 0 ) {
+            if ( cancelled.getAsBoolean() ) {
+                throw new CancellationException();
+            }
+            buffer.flip();
+            progress.copied(0, out.write(buffer));
+            buffer.compact();
+        }
+    }
+
+    private void verifyCopied(FileToCopy file) throws IOException {
+        if ( Files.size(file.source) != Files.size(file.target) ||
+                this.checksumOf(file.source) != this.checksumOf(file.target) ) {
+            Files.deleteIfExists(file.target);
+            throw new IOException(format("verification failed: %s differs from %s", file.target, file.source));
+        }
+    }
+
+    private long checksumOf(Path file) throws IOException {
+        CRC32C checksum = new CRC32C();
+        ByteBuffer buffer = this.buffers.get();
+
+        try (FileChannel in = FileChannel.open(file, READ)) {
+            buffer.clear();
+            while ( in.read(buffer) >= 0 ) {
+                buffer.flip();
+                checksum.update(buffer);
+                buffer.clear();
+            }
+        }
+
+        return checksum.getValue();
+    }
+
+    private static void copyAttributes(Path source, Path target) throws IOException {
+        PosixFileAttributeView sourcePosix = Files.getFileAttributeView(source, PosixFileAttributeView.class, LinkOption.NOFOLLOW_LINKS);
+        PosixFileAttributeView targetPosix = Files.getFileAttributeView(target, PosixFileAttributeView.class, LinkOption.NOFOLLOW_LINKS);
+        DosFileAttributeView sourceDos = Files.getFileAttributeView(source, DosFileAttributeView.class, LinkOption.NOFOLLOW_LINKS);
+        DosFileAttributeView targetDos = Files.getFileAttributeView(target, DosFileAttributeView.class, LinkOption.NOFOLLOW_LINKS);
+
+        BasicFileAttributes attributes;
+
+        if ( nonNull(sourcePosix) && nonNull(targetPosix) ) {
+            PosixFileAttributes posixAttributes = sourcePosix.readAttributes();
+            attributes = posixAttributes;
+            try {
+                targetPosix.setOwner(posixAttributes.owner());
+                targetPosix.setGroup(posixAttributes.group());
+            }
+            catch (IOException | SecurityException e) {
+                // only a privileged user can give a file away, the copy keeps the current owner
+            }
+            targetPosix.setPermissions(posixAttributes.permissions());
+        }
+        else if ( nonNull(sourceDos) && nonNull(targetDos) ) {
+            DosFileAttributes dosAttributes = sourceDos.readAttributes();
+            attributes = dosAttributes;
+            targetDos.setArchive(dosAttributes.isArchive());
+            targetDos.setHidden(dosAttributes.isHidden());
+            targetDos.setSystem(dosAttributes.isSystem());
+        }
+        else {
+            attributes = Files.readAttributes(source, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        }
+
+        Files.getFileAttributeView(target, BasicFileAttributeView.class, LinkOption.NOFOLLOW_LINKS).setTimes(
+                attributes.lastModifiedTime(), attributes.lastAccessTime(), attributes.creationTime());
+
+        if ( nonNull(sourceDos) && nonNull(targetDos) && attributes instanceof DosFileAttributes ) {
+            targetDos.setReadOnly(((DosFileAttributes) attributes).isReadOnly());
+        }
+    }
+
+    private static void awaitQuietly(List<Future<?>> copying) {
+        for ( Future<?> future : copying ) {
+            try {
+                future.get();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            catch (ExecutionException | CancellationException e) {
+                // already failed or cancelled, partial result is deleted after
+            }
+        }
+    }
+
+    private static void deleteQuietly(Path target) {
+        try {
+            Files.walkFileTree(target, new SimpleFileVisitor<>() {
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                    Files.deleteIfExists(file);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path directory, IOException e) throws IOException {
+                    Files.deleteIfExists(directory);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+        catch (IOException e) {
+            System.out.println(format("[COPY] cannot delete partial copy %s: %s", target, e.getMessage()));
+        }
+    }
+
+    private static void awaitAll(List<Future<?>> copying) throws IOException {
+        for ( Future<?> future : copying ) {
+            try {
+                future.get();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException();
+            }
+            catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if ( cause instanceof IOException ) {
+                    throw (IOException) cause;
+                }
+                if ( cause instanceof RuntimeException ) {
+                    throw (RuntimeException) cause;
+                }
+                throw new IOException(cause);
+            }
+        }
+    }
+}
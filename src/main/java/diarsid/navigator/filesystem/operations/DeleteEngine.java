@@ -0,0 +1,274 @@
+package diarsid.navigator.filesystem.operations;
+
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import static java.lang.String.format;
+import static java.lang.System.currentTimeMillis;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.Objects.nonNull;
+
+public class DeleteEngine {
+
+    public interface Progress {
+
+        void found(int entries);
+
+        void deleted(int entries);
+
+        void failed(IOException failure);
+    }
+
+    public static class Report {
+
+        private final List<Path> removed;
+        private final long deleted;
+        private final IOException failure;
+        private final boolean cancelled;
+        private final long millis;
+
+        private Report(List<Path> removed, long deleted, IOException failure, boolean cancelled, long millis) {
+            this.removed = removed;
+            this.deleted = deleted;
+            this.failure = failure;
+            this.cancelled = cancelled;
+            this.millis = millis;
+        }
+
+        public List<Path> removed() {
+            return this.removed;
+        }
+
+        public long deleted() {
+            return this.deleted;
+        }
+
+        public IOException failure() {
+            return this.failure;
+        }
+
+        public boolean hasFailure() {
+            return nonNull(this.failure);
+        }
+
+        public boolean isCancelled() {
+            return this.cancelled;
+        }
+
+        @Override
+        public String toString() {
+            return format("[DELETE] deleted:%s removed roots:%s time:%sms%s%s",
+                    this.deleted, this.removed.size(), this.millis,
+                    this.cancelled ? " cancelled" : "",
+                    this.hasFailure() ? " failure: " + this.failure.getMessage() : "");
+        }
+    }
+
+    private static class Deletion {
+
+        private final Progress progress;
+        private final BooleanSupplier cancelled;
+        private final AtomicReference<IOException> failure;
+        private final AtomicLong deleted;
+        private volatile boolean stoppedByCancel;
+
+        private Deletion(Progress progress, BooleanSupplier cancelled) {
+            this.progress = progress;
+            this.cancelled = cancelled;
+            this.failure = new AtomicReference<>();
+            this.deleted = new AtomicLong(0);
+            this.stoppedByCancel = false;
+        }
+
+        private boolean isStopped() {
+            if ( nonNull(this.failure.get()) ) {
+                return true;
+            }
+
+            if ( this.cancelled.getAsBoolean() ) {
+                this.stoppedByCancel = true;
+                return true;
+            }
+
+            return false;
+        }
+
+        private void fail(IOException e) {
+            if ( this.failure.compareAndSet(null, e) ) {
+                this.progress.failed(e);
+            }
+        }
+
+        private void deleted(int entries) {
+            if ( entries > 0 ) {
+                this.deleted.addAndGet(entries);
+                this.progress.deleted(entries);
+            }
+        }
+    }
+
+    private class DirectoryDeletion extends RecursiveTask<List<Path>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Deletion deletion;
+        private final Path directory;
+
+        private DirectoryDeletion(Deletion deletion, Path directory) {
+            this.deletion = deletion;
+            this.directory = directory;
+        }
+
+        @Override
+        protected List<Path> compute() {
+            if ( this.deletion.isStopped() ) {
+                return emptyList();
+            }
+
+            List<Path> files = new ArrayList<>();
+            List<RecursiveTask<List<Path>>> subtasks = new ArrayList<>();
+
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(this.directory)) {
+                for ( Path entry : entries ) {
+                    if ( Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS) ) {
+                        subtasks.add(new DirectoryDeletion(this.deletion, entry));
+                    }
+                    else {
+                        files.add(entry);
+                    }
+                }
+            }
+            catch (IOException e) {
+                this.deletion.fail(e);
+                return emptyList();
+            }
+            catch (DirectoryIteratorException e) {
+                this.deletion.fail(e.getCause());
+                return emptyList();
+            }
+
+            this.deletion.progress.found(files.size() + subtasks.size());
+
+            for ( int from = 0; from < files.size(); from = from + FILES_PER_TASK ) {
+                subtasks.add(new FilesDeletion(this.deletion, files.subList(from, Math.min(from + FILES_PER_TASK, files.size()))));
+            }
+
+            for ( RecursiveTask<List<Path>> subtask : subtasks ) {
+                subtask.fork();
+            }
+
+            List<Path> removed = new ArrayList<>();
+            boolean allRemoved = true;
+            RecursiveTask<List<Path>> subtask;
+            List<Path> subtaskRemoved;
+            for ( int i = subtasks.size() - 1; i >= 0; i-- ) {
+                subtask = subtasks.get(i);
+                subtaskRemoved = subtask.join();
+                removed.addAll(subtaskRemoved);
+                if ( subtask instanceof DirectoryDeletion ) {
+                    allRemoved = allRemoved && subtaskRemoved.size() == 1 &&
+                            subtaskRemoved.get(0).equals(((DirectoryDeletion) subtask).directory);
+                }
+                else {
+                    allRemoved = allRemoved && subtaskRemoved.size() == ((FilesDeletion) subtask).files.size();
+                }
+            }
+
+            if ( ! allRemoved || this.deletion.isStopped() ) {
+                return removed;
+            }
+
+            try {
+                Files.delete(this.directory);
+                this.deletion.deleted(1);
+                return singletonList(this.directory);
+            }
+            catch (IOException e) {
+                this.deletion.fail(e);
+                return removed;
+            }
+        }
+    }
+
+    private static class FilesDeletion extends RecursiveTask<List<Path>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Deletion deletion;
+        private final List<Path> files;
+
+        private FilesDeletion(Deletion deletion, List<Path> files) {
+            this.deletion = deletion;
+            this.files = files;
+        }
+
+        @Override
+        protected List<Path> compute() {
+            List<Path> removed = new ArrayList<>(this.files.size());
+
+            for ( Path file : this.files ) {
+                if ( this.deletion.isStopped() ) {
+                    break;
+                }
+
+                try {
+                    Files.delete(file);
+                    removed.add(file);
+                }
+                catch (NoSuchFileException e) {
+                    removed.add(file);
+                }
+                catch (IOException e) {
+                    this.deletion.fail(e);
+                    break;
+                }
+            }
+
+            this.deletion.deleted(removed.size());
+            return removed;
+        }
+    }
+
+    private static final int FILES_PER_TASK = 256;
+
+    private final ForkJoinPool pool;
+
+    public DeleteEngine(int parallelism) {
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    public Report delete(Path root, Progress progress, BooleanSupplier cancelled) {
+        long start = currentTimeMillis();
+        Deletion deletion = new Deletion(progress, cancelled);
+        List<Path> removed;
+
+        if ( Files.isDirectory(root, LinkOption.NOFOLLOW_LINKS) ) {
+            progress.found(1);
+            removed = this.pool.invoke(new DirectoryDeletion(deletion, root));
+        }
+        else {
+            progress.found(1);
+            removed = new FilesDeletion(deletion, singletonList(root)).compute();
+        }
+
+        return new Report(
+                removed,
+                deletion.deleted.get(),
+                deletion.failure.get(),
+                deletion.stoppedByCancel,
+                currentTimeMillis() - start);
+    }
+}
@@ -0,0 +1,189 @@
+package diarsid.navigator.filesystem.operations;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import diarsid.filesystem.api.Directory;
+import diarsid.filesystem.api.FSEntry;
+
+import static java.lang.String.format;
+import static java.util.Objects.nonNull;
+
+public class FileOperation {
+
+    public enum Kind {
+        MOVE,
+        COPY,
+        DELETE,
+        RENAME
+    }
+
+    public enum State {
+        QUEUED,
+        RUNNING,
+        DONE,
+        FAILED,
+        CANCELLED
+    }
+
+    private final FileOperations operations;
+    private final long id;
+    private final Kind kind;
+    private final List<FSEntry> entries;
+    private final Directory target;
+    private final String newName;
+    private final AtomicInteger done;
+    private final AtomicLong itemsFound;
+    private final AtomicLong itemsDone;
+    private final AtomicLong bytesFound;
+    private final AtomicLong bytesDone;
+    private volatile State state;
+    private volatile String failure;
+    private volatile boolean cancelRequested;
+    Set<Object> devices;
+
+    FileOperation(
+            FileOperations operations,
+            long id,
+            Kind kind,
+            List<FSEntry> entries,
+            Directory target,
+            String newName) {
+        this.operations = operations;
+        this.id = id;
+        this.kind = kind;
+        this.entries = entries;
+        this.target = target;
+        this.newName = newName;
+        this.done = new AtomicInteger(0);
+        this.itemsFound = new AtomicLong(0);
+        this.itemsDone = new AtomicLong(0);
+        this.bytesFound = new AtomicLong(0);
+        this.bytesDone = new AtomicLong(0);
+        this.state = State.QUEUED;
+    }
+
+    public long id() {
+        return this.id;
+    }
+
+    public Kind kind() {
+        return this.kind;
+    }
+
+    public State state() {
+        return this.state;
+    }
+
+    public int total() {
+        return this.entries.size();
+    }
+
+    public int done() {
+        return this.done.get();
+    }
+
+    public long itemsFound() {
+        return this.itemsFound.get();
+    }
+
+    public long itemsDone() {
+        return this.itemsDone.get();
+    }
+
+    public long bytesFound() {
+        return this.bytesFound.get();
+    }
+
+    public long bytesDone() {
+        return this.bytesDone.get();
+    }
+
+    public String failure() {
+        return this.failure;
+    }
+
+    public boolean isFinished() {
+        State state = this.state;
+        return state == State.DONE || state == State.FAILED || state == State.CANCELLED;
+    }
+
+    public boolean isCancelRequested() {
+        return this.cancelRequested;
+    }
+
+    public void cancel() {
+        this.cancelRequested = true;
+        this.operations.cancel(this);
+    }
+
+    public String description() {
+        String what = this.entries.size() == 1 ?
+                format("'%s'", this.entries.get(0).name()) :
+                format("%s entries", this.entries.size());
+
+        switch ( this.kind ) {
+            case MOVE: return format("move %s to '%s'", what, this.target.name());
+            case COPY: return format("copy %s to '%s'", what, this.target.name());
+            case DELETE: return format("remove %s", what);
+            case RENAME: return format("rename %s to '%s'", what, this.newName);
+            default: return what;
+        }
+    }
+
+    List<FSEntry> entries() {
+        return this.entries;
+    }
+
+    Directory target() {
+        return this.target;
+    }
+
+    String newName() {
+        return this.newName;
+    }
+
+    void entryDone() {
+        this.done.incrementAndGet();
+    }
+
+    void itemsFound(int items) {
+        this.itemsFound.addAndGet(items);
+    }
+
+    void itemsDone(int items) {
+        this.itemsDone.addAndGet(items);
+    }
+
+    void bytesFound(long bytes) {
+        this.bytesFound.addAndGet(bytes);
+    }
+
+    void bytesDone(long bytes) {
+        this.bytesDone.addAndGet(bytes);
+    }
+
+    void failing(String failure) {
+        this.failure = failure;
+    }
+
+    void changeStateTo(State state) {
+        this.state = state;
+    }
+
+    void failedWith(String failure) {
+        this.failure = failure;
+        this.state = State.FAILED;
+    }
+
+    boolean hasTarget() {
+        return nonNull(this.target);
+    }
+
+    @Override
+    public String toString() {
+        return format("FileOperation{%s %s %s %s/%s}", this.id, this.description(), this.state, this.done(), this.total());
+    }
+}
@@ -0,0 +1,404 @@
+package diarsid.navigator.filesystem.operations;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import diarsid.filesystem.api.Directory;
+import diarsid.filesystem.api.FSEntry;
+import diarsid.filesystem.api.FileSystem;
+import diarsid.navigator.filesystem.FSChangesCoalescer;
+
+import static java.lang.String.format;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singletonList;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import static diarsid.navigator.Navigator.NAVIGATOR_DEBUG;
+import static diarsid.navigator.Navigator.NAVIGATOR_THREADS;
+import static diarsid.navigator.filesystem.operations.FileOperation.Kind.COPY;
+import static diarsid.navigator.filesystem.operations.FileOperation.Kind.DELETE;
+import static diarsid.navigator.filesystem.operations.FileOperation.Kind.MOVE;
+import static diarsid.navigator.filesystem.operations.FileOperation.Kind.RENAME;
+import static diarsid.navigator.filesystem.operations.FileOperation.State.CANCELLED;
+import static diarsid.navigator.filesystem.operations.FileOperation.State.DONE;
+import static diarsid.navigator.filesystem.operations.FileOperation.State.RUNNING;
+
+public class FileOperations {
+
+    private static final String UNKNOWN_DEVICE = "unknown device";
+
+    private final FileSystem fileSystem;
+    private final FSChangesCoalescer changes;
+    private final CopyEngine copyEngine;
+    private final DeleteEngine deleteEngine;
+    private final int permitsPerDevice;
+    private final ExecutorService workers;
+    private final AtomicLong ids;
+    private final List<FileOperation> queued;
+    private final List<FileOperation> running;
+    private final Map<Object, Integer> busyDevices;
+    private final List<Consumer<FileOperation>> listeners;
+    private final Object lock;
+
+    public FileOperations(
+            FileSystem fileSystem,
+            FSChangesCoalescer changes,
+            CopyEngine copyEngine,
+            DeleteEngine deleteEngine,
+            int threads,
+            int permitsPerDevice) {
+        this.fileSystem = fileSystem;
+        this.changes = changes;
+        this.copyEngine = copyEngine;
+        this.deleteEngine = deleteEngine;
+        this.permitsPerDevice = permitsPerDevice;
+        this.ids = new AtomicLong(0);
+        this.queued = new ArrayList<>();
+        this.running = new ArrayList<>();
+        this.busyDevices = new HashMap<>();
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.lock = new Object();
+
+        AtomicInteger threadsCounter = new AtomicInteger(0);
+        this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "diarsid.navigator.file-operations-" + threadsCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void listen(Consumer<FileOperation> listener) {
+        this.listeners.add(listener);
+    }
+
+    public List<FileOperation> operations() {
+        List<FileOperation> operations = new ArrayList<>();
+        synchronized ( this.lock ) {
+            operations.addAll(this.running);
+            operations.addAll(this.queued);
+        }
+        return operations;
+    }
+
+    public FileOperation move(List<FSEntry> entries, Directory target) {
+        return this.submit(MOVE, entries, target, null);
+    }
+
+    public FileOperation copy(List<FSEntry> entries, Directory target) {
+        return this.submit(COPY, entries, target, null);
+    }
+
+    public FileOperation remove(FSEntry entry) {
+        return this.remove(singletonList(entry));
+    }
+
+    public FileOperation remove(List<FSEntry> entries) {
+        return this.submit(DELETE, entries, null, null);
+    }
+
+    public FileOperation rename(FSEntry entry, String newName) {
+        return this.submit(RENAME, singletonList(entry), null, newName);
+    }
+
+    void cancel(FileOperation operation) {
+        boolean dequeued;
+        synchronized ( this.lock ) {
+            dequeued = this.queued.remove(operation);
+        }
+
+        if ( dequeued ) {
+            operation.changeStateTo(CANCELLED);
+            this.notifyListeners(operation);
+            this.schedule();
+        }
+    }
+
+    private FileOperation submit(FileOperation.Kind kind, List<FSEntry> entries, Directory target, String newName) {
+        FileOperation operation = new FileOperation(
+                this, this.ids.incrementAndGet(), kind, new ArrayList<>(entries), target, newName);
+
+        synchronized ( this.lock ) {
+            this.queued.add(operation);
+        }
+        this.notifyListeners(operation);
+
+        if ( kind == RENAME ) {
+            synchronized ( this.lock ) {
+                operation.devices = emptySet();
+            }
+            this.schedule();
+            return operation;
+        }
+
+        NAVIGATOR_THREADS.runNamedAsync("file operation devices " + operation.id(), () -> {
+            Set<Object> devices = this.devicesOf(operation);
+            synchronized ( this.lock ) {
+                operation.devices = devices;
+            }
+            this.schedule();
+        });
+
+        return operation;
+    }
+
+    private void schedule() {
+        List<FileOperation> started = new ArrayList<>();
+
+        synchronized ( this.lock ) {
+            Set<Object> reserved = new HashSet<>();
+            Iterator<FileOperation> queuedOperations = this.queued.iterator();
+            FileOperation operation;
+            while ( queuedOperations.hasNext() ) {
+                operation = queuedOperations.next();
+
+                if ( isNull(operation.devices) ) {
+                    continue;
+                }
+
+                if ( this.canStart(operation, reserved) ) {
+                    for ( Object device : operation.devices ) {
+                        this.busyDevices.merge(device, 1, Integer::sum);
+                    }
+                    queuedOperations.remove();
+                    this.running.add(operation);
+                    started.add(operation);
+                }
+                else {
+                    reserved.addAll(operation.devices);
+                }
+            }
+        }
+
+        for ( FileOperation operation : started ) {
+            if ( operation.kind() == RENAME ) {
+                NAVIGATOR_THREADS.runNamedAsync("file operation " + operation.id(), () -> this.run(operation));
+            }
+            else {
+                this.workers.execute(() -> this.run(operation));
+            }
+        }
+    }
+
+    private boolean canStart(FileOperation operation, Set<Object> reserved) {
+        Integer busy;
+        for ( Object device : operation.devices ) {
+            if ( reserved.contains(device) ) {
+                return false;
+            }
+
+            busy = this.busyDevices.get(device);
+            if ( nonNull(busy) && busy >= this.permitsPerDevice ) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private void run(FileOperation operation) {
+        operation.changeStateTo(RUNNING);
+        this.notifyListeners(operation);
+
+        try {
+            for ( FSEntry entry : operation.entries() ) {
+                if ( operation.isCancelRequested() ) {
+                    operation.changeStateTo(CANCELLED);
+                    break;
+                }
+
+                if ( this.apply(operation, entry) ) {
+                    operation.entryDone();
+                    this.notifyListeners(operation);
+                }
+                else {
+                    operation.failedWith(format("cannot %s '%s'", operation.kind().name().toLowerCase(Locale.ROOT), entry.name()));
+                    break;
+                }
+            }
+
+            if ( operation.state() == RUNNING ) {
+                operation.changeStateTo(DONE);
+            }
+        }
+        catch (CancellationException e) {
+            operation.changeStateTo(CANCELLED);
+        }
+        catch (IOException e) {
+            operation.failedWith(format("cannot %s: %s", operation.kind().name().toLowerCase(Locale.ROOT), e.getMessage()));
+        }
+        catch (RuntimeException e) {
+            e.printStackTrace();
+            operation.failedWith(e.toString());
+        }
+        finally {
+            synchronized ( this.lock ) {
+                this.running.remove(operation);
+                for ( Object device : operation.devices ) {
+                    this.busyDevices.computeIfPresent(device, (key, busy) -> busy > 1 ? busy - 1 : null);
+                }
+            }
+        }
+
+        if ( NAVIGATOR_DEBUG ) {
+            System.out.println(format("[FILE OPERATIONS] %s", operation));
+        }
+        this.notifyListeners(operation);
+        this.schedule();
+    }
+
+    private boolean apply(FileOperation operation, FSEntry entry) throws IOException {
+        switch ( operation.kind() ) {
+            case MOVE: return this.move(operation, entry);
+            case COPY: return this.copy(operation, entry);
+            case DELETE: return this.delete(operation, entry, true);
+            case RENAME: return this.fileSystem.rename(entry, operation.newName());
+            default: throw new IllegalArgumentException();
+        }
+    }
+
+    private boolean move(FileOperation operation, FSEntry entry) throws IOException {
+        Path parent = entry.path().getParent();
+        Path target = operation.target().path();
+
+        if ( isNull(parent) || deviceOf(parent).equals(deviceOf(target)) ) {
+            return operation.target().host(entry);
+        }
+
+        return this.copy(operation, entry) && this.delete(operation, entry, false);
+    }
+
+    private boolean copy(FileOperation operation, FSEntry entry) throws IOException {
+        CopyEngine.Progress progress = new CopyEngine.Progress() {
+
+            @Override
+            public void found(int entries, long bytes) {
+                operation.itemsFound(entries);
+                operation.bytesFound(bytes);
+            }
+
+            @Override
+            public void copied(int entries, long bytes) {
+                operation.itemsDone(entries);
+                operation.bytesDone(bytes);
+                FileOperations.this.notifyListeners(operation);
+            }
+        };
+
+        CopyEngine.Report report = this.copyEngine.copy(
+                entry.path(), operation.target().path(), progress, operation::isCancelRequested);
+
+        if ( NAVIGATOR_DEBUG ) {
+            System.out.println(format("%s %s", report, entry.path()));
+        }
+        return true;
+    }
+
+    private boolean delete(FileOperation operation, FSEntry entry, boolean countsItems) throws IOException {
+        if ( entry.isFile() ) {
+            return this.fileSystem.remove(entry);
+        }
+
+        DeleteEngine.Progress progress = new DeleteEngine.Progress() {
+
+            @Override
+            public void found(int entries) {
+                if ( countsItems ) {
+                    operation.itemsFound(entries);
+                }
+            }
+
+            @Override
+            public void deleted(int entries) {
+                if ( countsItems ) {
+                    operation.itemsDone(entries);
+                    FileOperations.this.notifyListeners(operation);
+                }
+            }
+
+            @Override
+            public void failed(IOException failure) {
+                operation.failing(failure.getMessage());
+                FileOperations.this.notifyListeners(operation);
+            }
+        };
+
+        FSChangesCoalescer.Muting muting = this.changes.mute(entry.path());
+        DeleteEngine.Report report;
+        try {
+            report = this.deleteEngine.delete(entry.path(), progress, operation::isCancelRequested);
+        }
+        catch (RuntimeException e) {
+            muting.release(emptyList());
+            throw e;
+        }
+        muting.release(report.removed());
+
+        if ( NAVIGATOR_DEBUG ) {
+            System.out.println(format("%s %s", report, entry.path()));
+        }
+
+        if ( report.hasFailure() ) {
+            throw report.failure();
+        }
+
+        if ( report.isCancelled() ) {
+            throw new CancellationException();
+        }
+
+        return true;
+    }
+
+    private Set<Object> devicesOf(FileOperation operation) {
+        Set<Path> paths = new HashSet<>();
+        Path parent;
+        for ( FSEntry entry : operation.entries() ) {
+            parent = entry.path().getParent();
+            paths.add(isNull(parent) ? entry.path() : parent);
+        }
+
+        if ( operation.hasTarget() ) {
+            paths.add(operation.target().path());
+        }
+
+        Set<Object> devices = new HashSet<>();
+        for ( Path path : paths ) {
+            devices.add(deviceOf(path));
+        }
+
+        return devices;
+    }
+
+    static Object deviceOf(Path path) {
+        try {
+            return Files.getFileStore(path);
+        }
+        catch (IOException | SecurityException e) {
+            Path root = path.getRoot();
+            return isNull(root) ? UNKNOWN_DEVICE : root;
+        }
+    }
+
+    private void notifyListeners(FileOperation operation) {
+        for ( Consumer<FileOperation> listener : this.listeners ) {
+            listener.accept(operation);
+        }
+    }
+}
@@ -5,6 +5,7 @@ import javafx.scene.control.SplitPane;
 import javafx.scene.layout.VBox;
 
 import diarsid.navigator.view.breadcrumbs.PathBreadcrumbsBar;
+import diarsid.navigator.view.operations.FileOperationsPanel;
 import diarsid.navigator.view.table.FilesTable;
 import diarsid.navigator.view.tabs.TabsPanel;
 import diarsid.navigator.view.tree.DirectoriesTree;
@@ -19,7 +20,8 @@ public class FilesView implements ViewComponent {
             TabsPanel tabsPanel,
             DirectoriesTree directoriesTree,
             FilesTable filesTable,
-            PathBreadcrumbsBar pathBreadcrumbsBar) {
+            PathBreadcrumbsBar pathBreadcrumbsBar,
+            FileOperationsPanel fileOperationsPanel) {
         this.splitPane = new SplitPane();
 
         VBox vBox = new VBox();
@@ -31,7 +33,7 @@ public class FilesView implements ViewComponent {
         filesViewSplitPane.setDividerPositions(0.3, 0.7);
         VBox.setVgrow(filesViewSplitPane, ALWAYS);
 
-        vBox.getChildren().addAll(pathBreadcrumbsBar.node(), filesViewSplitPane);
+        vBox.getChildren().addAll(pathBreadcrumbsBar.node(), filesViewSplitPane, fileOperationsPanel.node());
         vBox.autosize();
 
 
@@ -92,6 +92,14 @@ public class BreadcrumbsBar<T> {
             this.label.setText(this.valueToString.apply(newT));
         }
 
+        boolean holds(T value) {
+            return this.t.isPresent() && this.t.orThrow().equals(value);
+        }
+
+        void setIcon(Image icon) {
+            this.imageView.setImage(icon);
+        }
+
         void set(Image icon, T newT) {
             this.t.resetTo(newT);
             this.label.setText(this.valueToString.apply(newT));
@@ -279,6 +287,19 @@ public class BreadcrumbsBar<T> {
         this.appendToBar(element);
     }
 
+    @SuppressWarnings("unchecked")
+    public void updateIcon(Image icon, T value) {
+        Element<T> element;
+        for ( Node node : this.elementsBox ) {
+            if ( node instanceof Element ) {
+                element = (Element<T>) node;
+                if ( element.holds(value) ) {
+                    element.setIcon(icon);
+                }
+            }
+        }
+    }
+
     private void appendToBar(Element<T> element) {
         if ( Platform.isFxApplicationThread() ) {
             this.appendToBarInFXThread(element);
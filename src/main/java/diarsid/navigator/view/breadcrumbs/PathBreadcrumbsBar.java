@@ -104,7 +104,7 @@ public class PathBreadcrumbsBar {
     }
 
     private void addToBar(Directory directory) {
-        Icon icon = this.icons.getFor(directory);
+        Icon icon = this.icons.getFor(directory, (image) -> this.bar.updateIcon(image, directory));
         this.bar.add(icon.image(), directory);
     }
 
@@ -1,6 +1,14 @@
 package diarsid.navigator.view.dragdrop;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import javafx.application.Platform;
 import javafx.scene.Node;
 import javafx.scene.input.ClipboardContent;
 import javafx.scene.input.DragEvent;
@@ -10,15 +18,78 @@ import javafx.scene.text.Text;
 import diarsid.support.objects.references.Possible;
 
 import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
 import static javafx.scene.input.TransferMode.MOVE;
 
+import static diarsid.navigator.Navigator.NAVIGATOR_THREADS;
 import static diarsid.support.objects.references.References.simplePossibleButEmpty;
 
 public class DragAndDropObjectTransfer<T> {
 
+    public class DropEligibility<K> {
+
+        private final Function<K, Object> keys;
+        private final BiPredicate<K, T> eligibility;
+        private final Map<Object, Boolean> eligibleByKeys;
+        private final Set<Object> evaluatedKeys;
+
+        private DropEligibility(Function<K, Object> keys, BiPredicate<K, T> eligibility) {
+            this.keys = keys;
+            this.eligibility = eligibility;
+            this.eligibleByKeys = new HashMap<>();
+            this.evaluatedKeys = new HashSet<>();
+        }
+
+        // never blocks: a target not evaluated yet is not eligible until its background evaluation lands,
+        // and JavaFX takes the result only on the next DRAG_OVER, i.e. when the mouse moves again
+        public boolean isEligible(K target) {
+            Object key = this.keys.apply(target);
+            Boolean eligible = this.eligibleByKeys.get(key);
+
+            if ( nonNull(eligible) ) {
+                return eligible;
+            }
+
+            if ( this.evaluatedKeys.add(key) ) {
+                long gesture = DragAndDropObjectTransfer.this.gesture;
+                T dragged = DragAndDropObjectTransfer.this.whatToDrag.orThrow();
+                NAVIGATOR_THREADS.runNamedAsync("drop eligibility " + key, () -> {
+                    boolean evaluated = this.eligibility.test(target, dragged);
+                    Platform.runLater(() -> {
+                        if ( gesture == DragAndDropObjectTransfer.this.gesture ) {
+                            this.eligibleByKeys.put(key, evaluated);
+                        }
+                    });
+                });
+            }
+
+            return false;
+        }
+
+        public boolean isEligibleNow(K target) {
+            Object key = this.keys.apply(target);
+            Boolean eligible = this.eligibleByKeys.get(key);
+
+            if ( isNull(eligible) ) {
+                eligible = this.eligibility.test(target, DragAndDropObjectTransfer.this.whatToDrag.orThrow());
+                this.eligibleByKeys.put(key, eligible);
+                this.evaluatedKeys.add(key);
+            }
+
+            return eligible;
+        }
+
+        private void clear() {
+            this.eligibleByKeys.clear();
+            this.evaluatedKeys.clear();
+        }
+    }
+
     private final String dragboardKey;
     private final Map<Class<? extends Node>, String> javaClassesAndStyleClasses;
     private final Possible<T> whatToDrag;
+    private final List<DropEligibility<?>> dropEligibilities;
+    private long gesture;
 
     public DragAndDropObjectTransfer(
             String dragboardKey,
@@ -26,6 +97,14 @@ public class DragAndDropObjectTransfer<T> {
         this.dragboardKey = dragboardKey;
         this.javaClassesAndStyleClasses = javaClassesAndStyleClasses;
         this.whatToDrag = simplePossibleButEmpty();
+        this.dropEligibilities = new ArrayList<>();
+        this.gesture = 0;
+    }
+
+    public <K> DropEligibility<K> newDropEligibility(Function<K, Object> keys, BiPredicate<K, T> eligibility) {
+        DropEligibility<K> dropEligibility = new DropEligibility<>(keys, eligibility);
+        this.dropEligibilities.add(dropEligibility);
+        return dropEligibility;
     }
 
     public void startDragAndDrop(Node node, T whatToDrag) {
@@ -34,6 +113,11 @@ public class DragAndDropObjectTransfer<T> {
         clipboardContent.putString(this.dragboardKey);
         dragboard.setContent(clipboardContent);
         this.whatToDrag.resetTo(whatToDrag);
+
+        this.gesture++;
+        for ( DropEligibility<?> dropEligibility : this.dropEligibilities ) {
+            dropEligibility.clear();
+        }
     }
 
     public boolean isDragAcceptable(DragEvent dragEvent) {
@@ -9,7 +9,7 @@ import javafx.stage.WindowEvent;
 
 import diarsid.filesystem.api.Directory;
 import diarsid.filesystem.api.FSEntry;
-import diarsid.filesystem.api.FileSystem;
+import diarsid.navigator.filesystem.operations.FileOperations;
 import diarsid.support.objects.references.Possible;
 import diarsid.support.objects.references.PossibleProperty;
 
@@ -24,7 +24,7 @@ public class FSEntryContextMenu extends ContextMenu {
 
     FSEntryContextMenu(
             Supplier<FSEntry> fsEntrySource,
-            FileSystem fileSystem,
+            FileOperations fileOperations,
             Consumer<FSEntry> onIgnore,
             Consumer<Directory> onOpenInNewTab) {
         this.fsEntry = possiblePropertyButEmpty();
@@ -35,7 +35,7 @@ public class FSEntryContextMenu extends ContextMenu {
         super.setOnShowing(this::doOnShowing);
 
         FSEntryMenuItem show = new FSEntryMenuItemShowInDefaultManager(this.fsEntry);
-        FSEntryMenuItem remove = new FSEntryMenuItemRemove(this.fsEntry, fileSystem);
+        FSEntryMenuItem remove = new FSEntryMenuItemRemove(this.fsEntry, fileOperations);
         FSEntryMenuItem ignore = new FSEntryMenuItemIgnore(this.fsEntry, onIgnore);
         FSEntryMenuItem openInNewTab = new FSEntryMenuItemOpenInNewTab(this.fsEntry, onOpenInNewTab);
 
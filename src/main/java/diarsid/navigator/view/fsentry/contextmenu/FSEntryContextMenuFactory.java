@@ -5,21 +5,22 @@ import java.util.function.Supplier;
 
 import diarsid.filesystem.api.Directory;
 import diarsid.filesystem.api.FSEntry;
-import diarsid.filesystem.api.FileSystem;
+import diarsid.navigator.filesystem.operations.FileOperations;
 
 public class FSEntryContextMenuFactory {
 
-    private final FileSystem fileSystem;
+    private final FileOperations fileOperations;
     private final Consumer<FSEntry> onIgnore;
     private final Consumer<Directory> onOpenInNewTab;
 
-    public FSEntryContextMenuFactory(FileSystem fileSystem, Consumer<FSEntry> onIgnore, Consumer<Directory> onOpenInNewTab) {
-        this.fileSystem = fileSystem;
+    public FSEntryContextMenuFactory(
+            FileOperations fileOperations, Consumer<FSEntry> onIgnore, Consumer<Directory> onOpenInNewTab) {
+        this.fileOperations = fileOperations;
         this.onIgnore = onIgnore;
         this.onOpenInNewTab = onOpenInNewTab;
     }
 
     public FSEntryContextMenu createNewFor(Supplier<? extends FSEntry> fsEntrySource) {
-        return new FSEntryContextMenu(fsEntrySource::get, this.fileSystem, this.onIgnore, this.onOpenInNewTab);
+        return new FSEntryContextMenu(fsEntrySource::get, this.fileOperations, this.onIgnore, this.onOpenInNewTab);
     }
 }
@@ -4,7 +4,7 @@ import javafx.scene.Node;
 
 import diarsid.filesystem.api.Directory;
 import diarsid.filesystem.api.FSEntry;
-import diarsid.filesystem.api.FileSystem;
+import diarsid.navigator.filesystem.operations.FileOperations;
 import diarsid.support.objects.references.PossibleProperty;
 
 import static java.lang.String.format;
@@ -15,16 +15,16 @@ import static diarsid.filesystem.api.Directory.Edit.RENAMED;
 
 public class FSEntryMenuItemRemove extends FSEntryMenuItem {
 
-    private final FileSystem fileSystem;
+    private final FileOperations fileOperations;
 
-    FSEntryMenuItemRemove(PossibleProperty<FSEntry> fsEntryReference, FileSystem fileSystem) {
+    FSEntryMenuItemRemove(PossibleProperty<FSEntry> fsEntryReference, FileOperations fileOperations) {
         super(fsEntryReference);
-        this.fileSystem = fileSystem;
+        this.fileOperations = fileOperations;
     }
 
     @Override
     void onAction(FSEntry fsEntry) {
-        this.fileSystem.remove(fsEntry);
+        this.fileOperations.remove(fsEntry);
     }
 
     @Override
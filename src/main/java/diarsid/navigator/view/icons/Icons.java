@@ -1,5 +1,6 @@
 package diarsid.navigator.view.icons;
 
+import java.util.function.Consumer;
 import javafx.beans.property.ReadOnlyDoubleProperty;
 import javafx.scene.image.Image;
 
@@ -15,6 +16,10 @@ public interface Icons {
 
     Icon getFor(FSEntry fsEntry);
 
+    Icon getFor(FSEntry fsEntry, Consumer<Image> onLoaded);
+
+    void warmUpInBackground();
+
     Image getDefaultImageForDirectory();
 
     Image getDefaultImageForFile();
@@ -23,4 +28,6 @@ public interface Icons {
 
     ReadOnlyDoubleProperty iconMarginSize();
 
+    IconsCache.Statistics cacheStatistics();
+
 }
@@ -0,0 +1,307 @@
+package diarsid.navigator.view.icons;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import javafx.scene.image.Image;
+
+import static java.lang.String.format;
+
+public class IconsCache {
+
+    enum Kind {
+        PATH,
+        NAME,
+        EXTENSION,
+        NATIVE_BY_EXTENSION,
+        NATIVE_BY_PATH
+    }
+
+    static final class Key {
+
+        private final Kind kind;
+        private final String value;
+        private final int size;
+
+        Key(Kind kind, String value, int size) {
+            this.kind = kind;
+            this.value = value;
+            this.size = size;
+        }
+
+        Kind kind() {
+            return this.kind;
+        }
+
+        String value() {
+            return this.value;
+        }
+
+        int size() {
+            return this.size;
+        }
+
+        Key withSize(int size) {
+            return new Key(this.kind, this.value, size);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return size == key.size &&
+                    kind == key.kind &&
+                    value.equals(key.value);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(kind, value, size);
+        }
+
+        @Override
+        public String toString() {
+            return kind + ":" + value + ":" + size;
+        }
+    }
+
+    public static class Statistics {
+
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final int entries;
+        private final long bytes;
+        private final long budgetBytes;
+
+        private Statistics(long hits, long misses, long evictions, int entries, long bytes, long budgetBytes) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.entries = entries;
+            this.bytes = bytes;
+            this.budgetBytes = budgetBytes;
+        }
+
+        public long hits() {
+            return this.hits;
+        }
+
+        public long misses() {
+            return this.misses;
+        }
+
+        public long evictions() {
+            return this.evictions;
+        }
+
+        public int entries() {
+            return this.entries;
+        }
+
+        public long bytes() {
+            return this.bytes;
+        }
+
+        public long budgetBytes() {
+            return this.budgetBytes;
+        }
+
+        @Override
+        public String toString() {
+            return format("[ICONS] [cache] hits:%s misses:%s evictions:%s entries:%s bytes:%s/%s",
+                    this.hits, this.misses, this.evictions, this.entries, this.bytes, this.budgetBytes);
+        }
+    }
+
+    private static final int MISSED_KEYS_LIMIT = 4096;
+
+    private final long budgetBytes;
+    private final LinkedHashMap<Key, Image> images;
+    private final LinkedHashMap<Key, Boolean> missedKeys;
+    private final Map<Key, CompletableFuture<Image>> inFlightLoads;
+    private final TreeMap<Integer, Integer> keysCountsBySizes;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private final AtomicLong evictions;
+    private final Object lock;
+    private long bytes;
+
+    IconsCache(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+        this.images = new LinkedHashMap<>(256, 0.75f, true);
+        this.missedKeys = new LinkedHashMap<>(256, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Boolean> eldest) {
+                return this.size() > MISSED_KEYS_LIMIT;
+            }
+        };
+        this.inFlightLoads = new ConcurrentHashMap<>();
+        this.keysCountsBySizes = new TreeMap<>();
+        this.hits = new AtomicLong(0);
+        this.misses = new AtomicLong(0);
+        this.evictions = new AtomicLong(0);
+        this.lock = new Object();
+        this.bytes = 0;
+    }
+
+    Image get(Key key, Supplier<Image> loader) {
+        Image image = this.cached(key);
+
+        if ( image != null ) {
+            this.hits.incrementAndGet();
+            return image;
+        }
+
+        if ( this.isMissed(key) ) {
+            this.hits.incrementAndGet();
+            return null;
+        }
+
+        this.misses.incrementAndGet();
+
+        CompletableFuture<Image> load = new CompletableFuture<>();
+        CompletableFuture<Image> inFlightLoad = this.inFlightLoads.putIfAbsent(key, load);
+
+        if ( inFlightLoad != null ) {
+            return inFlightLoad.join();
+        }
+
+        try {
+            image = this.cached(key);
+
+            if ( image == null && ! this.isMissed(key) ) {
+                image = loader.get();
+                this.put(key, image);
+            }
+
+            load.complete(image);
+            return image;
+        }
+        catch (RuntimeException e) {
+            load.completeExceptionally(e);
+            throw e;
+        }
+        finally {
+            this.inFlightLoads.remove(key);
+        }
+    }
+
+    Image getIfCached(Key key) {
+        Image image = this.cached(key);
+
+        if ( image != null ) {
+            this.hits.incrementAndGet();
+        }
+
+        return image;
+    }
+
+    Image getNearestVariant(Key key) {
+        synchronized ( this.lock ) {
+            Integer lower = this.keysCountsBySizes.lowerKey(key.size());
+            Integer higher = this.keysCountsBySizes.higherKey(key.size());
+            Image image;
+
+            while ( lower != null || higher != null ) {
+                if ( higher == null || (lower != null && key.size() - lower <= higher - key.size()) ) {
+                    image = this.images.get(key.withSize(lower));
+                    lower = this.keysCountsBySizes.lowerKey(lower);
+                }
+                else {
+                    image = this.images.get(key.withSize(higher));
+                    higher = this.keysCountsBySizes.higherKey(higher);
+                }
+
+                if ( image != null ) {
+                    return image;
+                }
+            }
+
+            return null;
+        }
+    }
+
+    List<Key> keysOfSize(int size) {
+        synchronized ( this.lock ) {
+            List<Key> keys = new ArrayList<>();
+            for ( Key key : this.images.keySet() ) {
+                if ( key.size == size ) {
+                    keys.add(key);
+                }
+            }
+            return keys;
+        }
+    }
+
+    private Image cached(Key key) {
+        synchronized ( this.lock ) {
+            return this.images.get(key);
+        }
+    }
+
+    boolean isMissed(Key key) {
+        synchronized ( this.lock ) {
+            return this.missedKeys.containsKey(key);
+        }
+    }
+
+    private void put(Key key, Image image) {
+        if ( image == null ) {
+            synchronized ( this.lock ) {
+                this.missedKeys.put(key, Boolean.TRUE);
+            }
+            return;
+        }
+
+        synchronized ( this.lock ) {
+            Image replaced = this.images.put(key, image);
+            if ( replaced != null ) {
+                this.bytes = this.bytes - weightOf(replaced);
+            }
+            else {
+                this.keysCountsBySizes.merge(key.size, 1, Integer::sum);
+            }
+            this.bytes = this.bytes + weightOf(image);
+
+            Iterator<Map.Entry<Key, Image>> eldest = this.images.entrySet().iterator();
+            Map.Entry<Key, Image> evicted;
+            while ( this.bytes > this.budgetBytes && this.images.size() > 1 && eldest.hasNext() ) {
+                evicted = eldest.next();
+                if ( evicted.getKey().equals(key) ) {
+                    continue;
+                }
+                eldest.remove();
+                this.bytes = this.bytes - weightOf(evicted.getValue());
+                this.keysCountsBySizes.computeIfPresent(evicted.getKey().size, (size, count) -> count > 1 ? count - 1 : null);
+                this.evictions.incrementAndGet();
+            }
+        }
+    }
+
+    public Statistics statistics() {
+        synchronized ( this.lock ) {
+            return new Statistics(
+                    this.hits.get(),
+                    this.misses.get(),
+                    this.evictions.get(),
+                    this.images.size(),
+                    this.bytes,
+                    this.budgetBytes);
+        }
+    }
+
+    private static long weightOf(Image image) {
+        return (long) image.getWidth() * (long) image.getHeight() * 4;
+    }
+}
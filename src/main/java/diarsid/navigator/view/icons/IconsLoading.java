@@ -0,0 +1,170 @@
+package diarsid.navigator.view.icons;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+import javafx.application.Platform;
+import javafx.scene.image.Image;
+
+import diarsid.filesystem.api.FSEntry;
+
+public class IconsLoading {
+
+    public static class Request {
+
+        private final IconsLoading loading;
+        private final FSEntry entry;
+        private final int index;
+        private final long generation;
+        private final Consumer<Image> onLoaded;
+        private volatile boolean cancelled;
+
+        private Request(IconsLoading loading, FSEntry entry, int index, long generation, Consumer<Image> onLoaded) {
+            this.loading = loading;
+            this.entry = entry;
+            this.index = index;
+            this.generation = generation;
+            this.onLoaded = onLoaded;
+            this.cancelled = false;
+        }
+
+        public void cancel() {
+            this.cancelled = true;
+            this.loading.dropPending(this);
+        }
+
+        public boolean isCancelled() {
+            return this.cancelled;
+        }
+    }
+
+    private final Icons icons;
+    private final PriorityQueue<Request> pending;
+    private final Object lock;
+    private int viewportFirst;
+    private int viewportLast;
+    private volatile long generation;
+
+    public IconsLoading(Icons icons, int threads) {
+        this.icons = icons;
+        this.pending = new PriorityQueue<>(Comparator.comparingInt(this::distanceFromViewport));
+        this.lock = new Object();
+        this.viewportFirst = 0;
+        this.viewportLast = 0;
+        this.generation = 0;
+
+        Thread worker;
+        for ( int i = 0; i < threads; i++ ) {
+            worker = new Thread(this::work, "diarsid.navigator.icons-loading-" + i);
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    public Request load(FSEntry entry, int index, Consumer<Image> onLoaded) {
+        Request request = new Request(this, entry, index, this.generation, onLoaded);
+
+        synchronized ( this.lock ) {
+            this.pending.add(request);
+            this.lock.notify();
+        }
+
+        return request;
+    }
+
+    public void viewportChanged(int first, int last) {
+        synchronized ( this.lock ) {
+            if ( this.viewportFirst == first && this.viewportLast == last ) {
+                return;
+            }
+
+            this.viewportFirst = first;
+            this.viewportLast = last;
+
+            if ( this.pending.size() > 1 ) {
+                List<Request> requests = new ArrayList<>(this.pending);
+                this.pending.clear();
+                this.pending.addAll(requests);
+            }
+        }
+    }
+
+    public void cancelAll() {
+        synchronized ( this.lock ) {
+            this.generation++;
+            for ( Request request : this.pending ) {
+                request.cancelled = true;
+            }
+            this.pending.clear();
+        }
+    }
+
+    public int pendingCount() {
+        synchronized ( this.lock ) {
+            return this.pending.size();
+        }
+    }
+
+    private void dropPending(Request request) {
+        synchronized ( this.lock ) {
+            this.pending.remove(request);
+        }
+    }
+
+    private int distanceFromViewport(Request request) {
+        if ( request.index < this.viewportFirst ) {
+            return this.viewportFirst - request.index;
+        }
+        else if ( request.index > this.viewportLast ) {
+            return request.index - this.viewportLast;
+        }
+        else {
+            return 0;
+        }
+    }
+
+    private Request takeNearest() throws InterruptedException {
+        synchronized ( this.lock ) {
+            while ( this.pending.isEmpty() ) {
+                this.lock.wait();
+            }
+
+            return this.pending.poll();
+        }
+    }
+
+    private void work() {
+        Request request;
+        Image image;
+        while ( true ) {
+            try {
+                request = this.takeNearest();
+            }
+            catch (InterruptedException e) {
+                return;
+            }
+
+            if ( request.isCancelled() || request.generation != this.generation ) {
+                continue;
+            }
+
+            try {
+                image = this.icons.getFor(request.entry).image();
+            }
+            catch (Exception e) {
+                e.printStackTrace();
+                continue;
+            }
+
+            Request loaded = request;
+            Image loadedImage = image;
+            Platform.runLater(() -> {
+                if ( ! loaded.isCancelled() && loaded.generation == this.generation ) {
+                    loaded.onLoaded.accept(loadedImage);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package diarsid.navigator.view.icons;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import diarsid.files.Extension;
+import diarsid.files.Extensions;
+import diarsid.navigator.model.ImageType;
+
+import static java.lang.String.format;
+import static java.lang.System.currentTimeMillis;
+
+import static diarsid.navigator.Navigator.NAVIGATOR_THREADS;
+import static diarsid.navigator.model.ImageType.findTypeIn;
+
+class IconsRules {
+
+    private final Map<Extension, Path> iconsByExtensions;
+    private final Map<Path, Path> predefinedIconsByPaths;
+    private final Map<String, Path> predefinedIconsByNames;
+
+    private IconsRules(
+            Map<Extension, Path> iconsByExtensions,
+            Map<Path, Path> predefinedIconsByPaths,
+            Map<String, Path> predefinedIconsByNames) {
+        this.iconsByExtensions = iconsByExtensions;
+        this.predefinedIconsByPaths = predefinedIconsByPaths;
+        this.predefinedIconsByNames = predefinedIconsByNames;
+    }
+
+    static CompletableFuture<IconsRules> indexInBackground(Extensions extensions) {
+        long start = currentTimeMillis();
+
+        CompletableFuture<Map<String, Path>> byNames = async("icons index by names", () -> indexByNames(), new HashMap<>());
+        CompletableFuture<Map<Extension, Path>> byExtensions = async("icons index by extensions", () -> indexByExtensions(extensions), new HashMap<>());
+        CompletableFuture<Map<Path, Path>> byPaths = async("icons index by paths", () -> indexByPaths(), new HashMap<>());
+
+        return CompletableFuture
+                .allOf(byNames, byExtensions, byPaths)
+                .thenApply((done) -> {
+                    IconsRules rules = new IconsRules(byExtensions.join(), byPaths.join(), byNames.join());
+                    System.out.println(format("[STARTUP] [icons] rules indexed in %sms, names:%s extensions:%s paths:%s",
+                            currentTimeMillis() - start,
+                            rules.predefinedIconsByNames.size(),
+                            rules.iconsByExtensions.size(),
+                            rules.predefinedIconsByPaths.size()));
+                    return rules;
+                });
+    }
+
+    private interface Indexing<T> {
+
+        T index() throws IOException;
+    }
+
+    private static <T> CompletableFuture<T> async(String name, Indexing<T> indexing, T ifFailed) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+
+        NAVIGATOR_THREADS.runNamedAsync(name, () -> {
+            try {
+                future.complete(indexing.index());
+            }
+            catch (Throwable t) {
+                t.printStackTrace();
+                future.complete(ifFailed);
+            }
+        });
+
+        return future;
+    }
+
+    private static Map<String, Path> indexByNames() throws IOException {
+        Map<String, Path> icons = new HashMap<>();
+
+        try (Stream<Path> iconsByNames = Files.list(Paths.get("./home/icons/by_names"))) {
+            iconsByNames.forEach((path) -> {
+                String fileName = path.getFileName().toString().toLowerCase();
+                Optional<ImageType> imageType = findTypeIn(fileName);
+                if ( imageType.isPresent() ) {
+                    fileName = imageType.get().removeFrom(fileName);
+                }
+                icons.put(fileName, path.toAbsolutePath());
+            });
+        }
+
+        return icons;
+    }
+
+    private static Map<Extension, Path> indexByExtensions(Extensions extensions) throws IOException {
+        Map<Extension, Path> icons = new HashMap<>();
+
+        try (Stream<Path> iconsByExtensions = Files.list(Paths.get("./home/icons/by_extensions"))) {
+            iconsByExtensions.forEach((path) -> {
+                String fileName = path.getFileName().toString().toLowerCase();
+
+                Optional<ImageType> imageType = findTypeIn(fileName);
+                if ( imageType.isPresent() ) {
+                    fileName = imageType.get().removeFrom(fileName);
+                }
+
+                Extension extension = extensions.getBy(fileName);
+                icons.put(extension, path.toAbsolutePath());
+            });
+        }
+
+        return icons;
+    }
+
+    private static Map<Path, Path> indexByPaths() throws IOException {
+        Map<Path, Path> icons = new HashMap<>();
+
+        Files.readAllLines(Paths.get("home/icons/by_paths/paths_to_icons.txt"))
+                .forEach(link -> {
+                    int indexOfSeparator = link.indexOf(" // ");
+                    String path = link.substring(0, indexOfSeparator).strip();
+                    String iconName = link.substring(indexOfSeparator + " // ".length()).strip();
+                    String iconPath = "./home/icons/by_paths/" + iconName;
+                    if ( Files.exists(Paths.get(iconPath)) ) {
+                        icons.put(Paths.get(path), Paths.get(iconPath).toAbsolutePath());
+                    }
+                    else {
+                        System.out.println("image '" + iconName + "' is not found for path: " + path);
+                    }
+                });
+
+        return icons;
+    }
+
+    Path byExtension(Extension extension) {
+        return this.iconsByExtensions.get(extension);
+    }
+
+    Path byPath(Path path) {
+        return this.predefinedIconsByPaths.get(path);
+    }
+
+    Path byName(String name) {
+        return this.predefinedIconsByNames.get(name);
+    }
+}
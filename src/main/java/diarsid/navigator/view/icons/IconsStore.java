@@ -0,0 +1,338 @@
+package diarsid.navigator.view.icons;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javafx.scene.image.Image;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.PixelReader;
+import javafx.scene.image.WritableImage;
+
+import static java.lang.String.format;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Objects.isNull;
+
+import static diarsid.navigator.Navigator.NAVIGATOR_DEBUG;
+
+class IconsStore {
+
+    static final long NO_SOURCE = -1;
+
+    private static final String ATLAS_FILE = "icons.atlas";
+    private static final String INDEX_FILE = "icons.index";
+    private static final String COMPACTED_SUFFIX = ".compacted";
+    private static final String SEPARATOR = "\t";
+    private static final long COMPACTION_THRESHOLD_BYTES = 4 * 1024 * 1024;
+    private static final long MAX_ATLAS_BYTES = 256 * 1024 * 1024;
+
+    private static class Slot {
+
+        private final long offset;
+        private final int width;
+        private final int height;
+        private final long sourceModified;
+
+        private Slot(long offset, int width, int height, long sourceModified) {
+            this.offset = offset;
+            this.width = width;
+            this.height = height;
+            this.sourceModified = sourceModified;
+        }
+
+        private int length() {
+            return this.width * this.height * 4;
+        }
+    }
+
+    private final Path directory;
+    private final Map<IconsCache.Key, Slot> slots;
+    private boolean opened;
+    private boolean broken;
+    private FileChannel atlas;
+    private MappedByteBuffer atlasMapped;
+    private BufferedWriter index;
+
+    IconsStore(Path directory) {
+        this.directory = directory;
+        this.slots = new HashMap<>();
+        this.opened = false;
+        this.broken = false;
+    }
+
+    synchronized Image get(IconsCache.Key key, long sourceModified) {
+        if ( ! this.open() ) {
+            return null;
+        }
+
+        Slot slot = this.slots.get(key);
+
+        if ( isNull(slot) || slot.sourceModified != sourceModified ) {
+            return null;
+        }
+
+        try {
+            if ( isNull(this.atlasMapped) || this.atlasMapped.capacity() < slot.offset + slot.length() ) {
+                this.atlasMapped = this.atlas.map(FileChannel.MapMode.READ_ONLY, 0, this.atlas.size());
+            }
+
+            ByteBuffer pixels = this.atlasMapped.duplicate();
+            pixels.position((int) slot.offset);
+            pixels.limit((int) slot.offset + slot.length());
+
+            WritableImage image = new WritableImage(slot.width, slot.height);
+            image.getPixelWriter().setPixels(
+                    0, 0, slot.width, slot.height,
+                    PixelFormat.getByteBgraPreInstance(), pixels.slice(), slot.width * 4);
+
+            return image;
+        }
+        catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    synchronized void put(IconsCache.Key key, long sourceModified, Image image) {
+        if ( isNull(image) || image.isError() || ! this.open() ) {
+            return;
+        }
+
+        int width = (int) image.getWidth();
+        int height = (int) image.getHeight();
+        PixelReader reader = image.getPixelReader();
+
+        if ( width < 1 || height < 1 || isNull(reader) ) {
+            return;
+        }
+
+        byte[] pixels = new byte[width * height * 4];
+        reader.getPixels(0, 0, width, height, PixelFormat.getByteBgraPreInstance(), pixels, 0, width * 4);
+
+        try {
+            long offset = this.atlas.size();
+
+            if ( offset + pixels.length > MAX_ATLAS_BYTES ) {
+                return;
+            }
+
+            ByteBuffer buffer = ByteBuffer.wrap(pixels);
+            while ( buffer.hasRemaining() ) {
+                this.atlas.write(buffer, offset + buffer.position());
+            }
+
+            Slot slot = new Slot(offset, width, height, sourceModified);
+            this.slots.put(key, slot);
+
+            writeIndexLine(this.index, key, slot);
+            this.index.flush();
+        }
+        catch (IOException e) {
+            e.printStackTrace();
+            this.broken = true;
+        }
+    }
+
+    private boolean open() {
+        if ( this.opened ) {
+            return ! this.broken;
+        }
+
+        this.opened = true;
+
+        try {
+            Files.createDirectories(this.directory);
+            Path atlasPath = this.directory.resolve(ATLAS_FILE);
+            Path indexPath = this.directory.resolve(INDEX_FILE);
+
+            long liveBytes = this.readIndex(indexPath);
+
+            if ( Files.exists(atlasPath) && Files.size(atlasPath) - liveBytes > COMPACTION_THRESHOLD_BYTES ) {
+                this.compact(atlasPath, indexPath);
+            }
+
+            this.atlas = FileChannel.open(atlasPath, CREATE, READ, WRITE);
+            this.index = Files.newBufferedWriter(indexPath, UTF_8, CREATE, WRITE, APPEND);
+        }
+        catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            this.broken = true;
+        }
+
+        return ! this.broken;
+    }
+
+    private void compact(Path atlasPath, Path indexPath) throws IOException {
+        Path compactedAtlasPath = this.directory.resolve(ATLAS_FILE + COMPACTED_SUFFIX);
+        Path compactedIndexPath = this.directory.resolve(INDEX_FILE + COMPACTED_SUFFIX);
+        Map<IconsCache.Key, Slot> compactedSlots = new HashMap<>();
+        long atlasBytes = Files.size(atlasPath);
+        long offset = 0;
+
+        try (FileChannel from = FileChannel.open(atlasPath, READ);
+             FileChannel to = FileChannel.open(compactedAtlasPath, CREATE, WRITE, TRUNCATE_EXISTING);
+             BufferedWriter index = Files.newBufferedWriter(compactedIndexPath, UTF_8, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            ByteBuffer pixels;
+            Slot slot;
+            Slot compactedSlot;
+            for ( Map.Entry<IconsCache.Key, Slot> keyAndSlot : this.slots.entrySet() ) {
+                slot = keyAndSlot.getValue();
+                if ( slot.offset < 0 || slot.offset + slot.length() > atlasBytes ) {
+                    continue;
+                }
+
+                pixels = ByteBuffer.allocate(slot.length());
+                while ( pixels.hasRemaining() ) {
+                    if ( from.read(pixels, slot.offset + pixels.position()) < 0 ) {
+                        throw new IOException("unexpected end of atlas " + atlasPath);
+                    }
+                }
+
+                pixels.flip();
+                while ( pixels.hasRemaining() ) {
+                    to.write(pixels, offset + pixels.position());
+                }
+
+                compactedSlot = new Slot(offset, slot.width, slot.height, slot.sourceModified);
+                compactedSlots.put(keyAndSlot.getKey(), compactedSlot);
+                writeIndexLine(index, keyAndSlot.getKey(), compactedSlot);
+                offset = offset + slot.length();
+            }
+        }
+
+        Files.move(compactedAtlasPath, atlasPath, REPLACE_EXISTING);
+        Files.move(compactedIndexPath, indexPath, REPLACE_EXISTING);
+
+        if ( NAVIGATOR_DEBUG ) {
+            System.out.println(format("[ICONS] [store] atlas compacted %s -> %s bytes", atlasBytes, offset));
+        }
+
+        this.slots.clear();
+        this.slots.putAll(compactedSlots);
+    }
+
+    private static void writeIndexLine(BufferedWriter index, IconsCache.Key key, Slot slot) throws IOException {
+        index.write(String.join(SEPARATOR,
+                String.valueOf(slot.offset),
+                String.valueOf(slot.width),
+                String.valueOf(slot.height),
+                String.valueOf(slot.sourceModified),
+                key.kind().name(),
+                String.valueOf(key.size()),
+                escaped(key.value())));
+        index.newLine();
+    }
+
+    private static String escaped(String value) {
+        StringBuilder escaped = new StringBuilder(value.length() + 8);
+        char c;
+        for ( int i = 0; i < value.length(); i++ ) {
+            c = value.charAt(i);
+            switch ( c ) {
+                case '\\':
+                    escaped.append("\\\\");
+                    break;
+                case '\t':
+                    escaped.append("\\t");
+                    break;
+                case '\n':
+                    escaped.append("\\n");
+                    break;
+                case '\r':
+                    escaped.append("\\r");
+                    break;
+                default:
+                    escaped.append(c);
+                    break;
+            }
+        }
+        return escaped.toString();
+    }
+
+    private static String unescaped(String value) {
+        StringBuilder unescaped = new StringBuilder(value.length());
+        char c;
+        for ( int i = 0; i < value.length(); i++ ) {
+            c = value.charAt(i);
+            if ( c != '\\' ) {
+                unescaped.append(c);
+                continue;
+            }
+
+            i++;
+            if ( i == value.length() ) {
+                throw new IllegalArgumentException("dangling escape in " + value);
+            }
+
+            c = value.charAt(i);
+            switch ( c ) {
+                case '\\':
+                    unescaped.append('\\');
+                    break;
+                case 't':
+                    unescaped.append('\t');
+                    break;
+                case 'n':
+                    unescaped.append('\n');
+                    break;
+                case 'r':
+                    unescaped.append('\r');
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown escape \\" + c + " in " + value);
+            }
+        }
+        return unescaped.toString();
+    }
+
+    private long readIndex(Path indexPath) throws IOException {
+        if ( ! Files.exists(indexPath) ) {
+            return 0;
+        }
+
+        List<String> lines = Files.readAllLines(indexPath, UTF_8);
+        String[] parts;
+        IconsCache.Key key;
+        for ( String line : lines ) {
+            parts = line.split(SEPARATOR, 7);
+            if ( parts.length < 7 ) {
+                continue;
+            }
+
+            try {
+                key = new IconsCache.Key(
+                        IconsCache.Kind.valueOf(parts[4]),
+                        unescaped(parts[6]),
+                        Integer.parseInt(parts[5]));
+
+                this.slots.put(key, new Slot(
+                        Long.parseLong(parts[0]),
+                        Integer.parseInt(parts[1]),
+                        Integer.parseInt(parts[2]),
+                        Long.parseLong(parts[3])));
+            }
+            catch (IllegalArgumentException e) {
+                System.out.println("[ICONS] [store] skip malformed index line: " + line);
+            }
+        }
+
+        long liveBytes = 0;
+        for ( Slot slot : this.slots.values() ) {
+            liveBytes = liveBytes + slot.length();
+        }
+
+        return liveBytes;
+    }
+}
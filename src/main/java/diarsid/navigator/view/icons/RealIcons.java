@@ -4,103 +4,100 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
-import java.util.stream.Stream;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.ReadOnlyDoubleProperty;
 import javafx.beans.property.SimpleDoubleProperty;
 import javafx.scene.image.Image;
+import javafx.stage.Screen;
 
 import diarsid.files.Extension;
+import diarsid.files.Extensions;
 import diarsid.filesystem.api.FSEntry;
 import diarsid.filesystem.api.File;
 import diarsid.filesystem.api.FileSystem;
-import diarsid.navigator.model.ImageType;
 import diarsid.support.javafx.images.FilesNativeIconImageExtractor;
 
+import static java.lang.String.format;
+import static java.lang.System.currentTimeMillis;
 import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
 
-import static diarsid.navigator.model.ImageType.findTypeIn;
+import static diarsid.navigator.Navigator.NAVIGATOR_THREADS;
+import static diarsid.navigator.view.icons.IconsCache.Kind.EXTENSION;
+import static diarsid.navigator.view.icons.IconsCache.Kind.NAME;
+import static diarsid.navigator.view.icons.IconsCache.Kind.NATIVE_BY_EXTENSION;
+import static diarsid.navigator.view.icons.IconsCache.Kind.NATIVE_BY_PATH;
+import static diarsid.navigator.view.icons.IconsCache.Kind.PATH;
 
 class RealIcons implements Icons {
 
-    private final Image file;
-    private final Image folder;
+    private static class Candidate {
 
+        private final IconsCache.Key key;
+        private final Supplier<Image> loader;
+
+        private Candidate(IconsCache.Key key, Supplier<Image> loader) {
+            this.key = key;
+            this.loader = loader;
+        }
+    }
+
+    private static final long CACHE_BUDGET_BYTES = 16 * 1024 * 1024;
+    private static final int LOADING_THREADS = 1;
+    private static final Set<String> EXTENSIONS_WITH_ICON_PER_FILE = Set.of("exe", "lnk", "ico", "url");
+
+    private static final int NATIVE_SIZE = 0;
+    private static final long NATIVE_BY_EXTENSION_TTL_MILLIS = 7 * 24 * 60 * 60 * 1000L;
+    private static final List<String> COMMON_EXTENSIONS = List.of(
+            "txt", "pdf", "doc", "docx", "xls", "xlsx", "ppt", "pptx",
+            "jpg", "jpeg", "png", "gif", "zip", "rar", "7z",
+            "mp3", "mp4", "avi", "mkv", "html", "xml", "json", "java");
+
+    private volatile Image file;
+    private volatile Image folder;
+    private volatile boolean rasterizing;
+
+    private final double outputScale;
+    private final Extensions extensions;
     private final FilesNativeIconImageExtractor imageExtractor;
-    private final Map<Extension, Image> imagesByExtensions;
-    private final Map<Path, Image> predefinedImagesByPaths;
-    private final Map<String, Image> predefinedImagesByNames;
+    private final IconsCache cache;
+    private final IconsStore store;
+    private final CompletableFuture<IconsRules> rules;
+    private final IconsLoading loading;
 //    private final PresentProperty<Double> size;
     private final DoubleProperty iconSize;
     private final DoubleProperty iconMarginSize;
     private final boolean extractNativeIcon = true;
 
     RealIcons(FileSystem fileSystem) {
+        this.extensions = fileSystem.extensions();
         this.imageExtractor = new FilesNativeIconImageExtractor(fileSystem.extensions());
         this.iconSize = new SimpleDoubleProperty(18);
         this.iconMarginSize = new SimpleDoubleProperty(10);
+        this.outputScale = Screen.getPrimary().getOutputScaleX();
+        this.rasterizing = false;
 
-        this.file = this.loadFrom("./home/icons/by_types/file.png");
-        this.folder = this.loadFrom("./home/icons/by_types/folder.png");
-
-        this.imagesByExtensions = new HashMap<>();
-        this.predefinedImagesByPaths = new HashMap<>();
-        this.predefinedImagesByNames = new HashMap<>();
-
-        try (
-                Stream<Path> iconsByNames = Files.list(Paths.get("./home/icons/by_names"));
-                Stream<Path> iconsByExtensions = Files.list(Paths.get("./home/icons/by_extensions"))) {
-
-            iconsByNames.forEach((path) -> {
-                        try {
-                            Image icon = this.loadFrom(path.toAbsolutePath().toString());
-                            String fileName = path.getFileName().toString().toLowerCase();
-                            Optional<ImageType> imageType = findTypeIn(fileName);
-                            if ( imageType.isPresent() ) {
-                                fileName = imageType.get().removeFrom(fileName);
-                            }
-                            this.predefinedImagesByNames.put(fileName, icon);
-                        }
-                        catch (IllegalArgumentException e) {
-                            System.out.println("Cannot load image: " + path);
-                        }
-                    });
-
-
-            iconsByExtensions.forEach((path) -> {
-                        Image icon = this.loadFrom(path.toAbsolutePath().toString());
-                        String fileName = path.getFileName().toString().toLowerCase();
-
-                        Optional<ImageType> imageType = findTypeIn(fileName);
-                        if ( imageType.isPresent() ) {
-                            fileName = imageType.get().removeFrom(fileName);
-                        }
-
-                        Extension extension = fileSystem.extensions().getBy(fileName);
-                        this.imagesByExtensions.put(extension, icon);
-                    });
-
-            Files.readAllLines(Paths.get("home/icons/by_paths/paths_to_icons.txt"))
-                    .forEach(link -> {
-                        int indexOfSeparator = link.indexOf(" // ");
-                        String path = link.substring(0, indexOfSeparator).strip();
-                        String iconName = link.substring(indexOfSeparator + " // ".length()).strip();
-                        String iconPath = "./home/icons/by_paths/" + iconName;
-                        if ( Files.exists(Paths.get(iconPath)) ) {
-                            Image icon = this.loadFrom(iconPath);
-                            this.predefinedImagesByPaths.put(Paths.get(path), icon);
-                        }
-                        else {
-                            System.out.println("image '" + iconName + "' is not found for path: " + path);
-                        }
-                    });
-        }
-        catch (IOException e) {
-            e.printStackTrace();
-        }
+        this.file = this.loadFrom("./home/icons/by_types/file.png", this.pixelSize());
+        this.folder = this.loadFrom("./home/icons/by_types/folder.png", this.pixelSize());
+
+        this.cache = new IconsCache(CACHE_BUDGET_BYTES);
+        this.store = new IconsStore(Paths.get("./home/icons/cache"));
+
+        this.rules = IconsRules.indexInBackground(fileSystem.extensions());
+        this.loading = new IconsLoading(this, LOADING_THREADS);
+
+        this.iconSize.addListener((property, oldSize, newSize) -> {
+            this.rasterizeInBackground(
+                    this.pixelSizeOf(oldSize.doubleValue()),
+                    this.pixelSizeOf(newSize.doubleValue()));
+        });
 
 //        new Thread(() -> {
 //            while ( this.iconSize.get() < 30 ) {
@@ -116,8 +113,61 @@ class RealIcons implements Icons {
 //        }).start();
     }
 
-    private Image loadFrom(String url) {
-        return new Image("file:" + url, false);
+    private Image loadFrom(String url, int size) {
+        return new Image("file:" + url, size, size, true, true, false);
+    }
+
+    private int pixelSize() {
+        return this.pixelSizeOf(this.iconSize.get());
+    }
+
+    private int pixelSizeOf(double iconSize) {
+        return (int) Math.ceil(iconSize * this.outputScale);
+    }
+
+    private void rasterizeInBackground(int oldSize, int newSize) {
+        if ( oldSize == newSize ) {
+            return;
+        }
+
+        this.rasterizing = true;
+        NAVIGATOR_THREADS.runNamedAsync("icons rasterize " + newSize + "px", () -> {
+            try {
+                this.file = this.loadFrom("./home/icons/by_types/file.png", newSize);
+                this.folder = this.loadFrom("./home/icons/by_types/folder.png", newSize);
+
+                Path iconSource;
+                for ( IconsCache.Key key : this.cache.keysOfSize(oldSize) ) {
+                    if ( newSize != this.pixelSize() ) {
+                        return;
+                    }
+
+                    iconSource = this.sourceOf(key);
+                    if ( nonNull(iconSource) ) {
+                        this.load(key.withSize(newSize), iconSource);
+                    }
+                }
+            }
+            finally {
+                if ( newSize == this.pixelSize() ) {
+                    this.rasterizing = false;
+                }
+            }
+        });
+    }
+
+    private Path sourceOf(IconsCache.Key key) {
+        IconsRules rules = this.rules.join();
+        switch ( key.kind() ) {
+            case PATH:
+                return rules.byPath(Paths.get(key.value()));
+            case NAME:
+                return rules.byName(key.value());
+            case EXTENSION:
+                return rules.byExtension(this.extensions.getBy(key.value()));
+            default:
+                return null;
+        }
     }
 
     @Override
@@ -132,49 +182,222 @@ class RealIcons implements Icons {
 
     @Override
     public Icon getFor(FSEntry fsEntry) {
+        Image image = null;
+
+        for ( Candidate candidate : this.candidatesFor(fsEntry, this.rules.join()) ) {
+            image = this.decoded(candidate);
+            if ( nonNull(image) ) {
+                break;
+            }
+        }
+
+        if ( isNull(image) ) {
+            image = this.defaultImageFor(fsEntry);
+        }
+
+        return new RealIcon(image, fsEntry);
+    }
+
+    @Override
+    public Icon getFor(FSEntry fsEntry, Consumer<Image> onLoaded) {
+        Image image = this.readyOrNull(fsEntry);
+
+        if ( isNull(image) ) {
+            this.loading.load(fsEntry, 0, onLoaded);
+            image = this.defaultImageFor(fsEntry);
+        }
+
+        return new RealIcon(image, fsEntry);
+    }
+
+    private Image readyOrNull(FSEntry fsEntry) {
+        if ( ! this.rules.isDone() ) {
+            return null;
+        }
+
         Image image;
+        for ( Candidate candidate : this.candidatesFor(fsEntry, this.rules.join()) ) {
+            image = this.cachedOrNearest(candidate.key);
+            if ( nonNull(image) ) {
+                return image;
+            }
 
-        if ( fsEntry.isDirectory() ) {
-            image = this.predefinedImagesByPaths.get(fsEntry.path());
+            if ( ! this.cache.isMissed(candidate.key) ) {
+                return null;
+            }
+        }
+
+        return this.defaultImageFor(fsEntry);
+    }
+
+    private List<Candidate> candidatesFor(FSEntry fsEntry, IconsRules rules) {
+        List<Candidate> candidates = new ArrayList<>();
+        int size = this.pixelSize();
+        Path iconSource;
 
-            if ( isNull(image) ) {
-                image = this.predefinedImagesByNames.get(fsEntry.name().toLowerCase());
+        if ( fsEntry.isDirectory() ) {
+            iconSource = rules.byPath(fsEntry.path());
+            if ( nonNull(iconSource) ) {
+                candidates.add(this.decodedCandidate(new IconsCache.Key(PATH, fsEntry.path().toString(), size), iconSource));
             }
 
-            if ( isNull(image) ) {
-                image = this.folder;
+            String name = fsEntry.name().toLowerCase();
+            iconSource = rules.byName(name);
+            if ( nonNull(iconSource) ) {
+                candidates.add(this.decodedCandidate(new IconsCache.Key(NAME, name, size), iconSource));
             }
         }
         else {
             File file = fsEntry.asFile();
 
-            image = this.predefinedImagesByPaths.get(file.path());
+            iconSource = rules.byPath(file.path());
+            if ( nonNull(iconSource) ) {
+                candidates.add(this.decodedCandidate(new IconsCache.Key(PATH, file.path().toString(), size), iconSource));
+            }
+
+            Optional<Extension> extension = file.extension();
 
-            if ( isNull(image) ) {
-                Optional<Extension> extension = file.extension();
-                if ( extension.isPresent() ) {
-                    image = this.imagesByExtensions.get(extension.get());
+            if ( extension.isPresent() ) {
+                iconSource = rules.byExtension(extension.get());
+                if ( nonNull(iconSource) ) {
+                    candidates.add(this.decodedCandidate(new IconsCache.Key(EXTENSION, extension.get().name(), size), iconSource));
                 }
             }
 
-            if ( isNull(image) ) {
-                image = this.predefinedImagesByNames.get(fsEntry.name().toLowerCase());
+            String name = fsEntry.name().toLowerCase();
+            iconSource = rules.byName(name);
+            if ( nonNull(iconSource) ) {
+                candidates.add(this.decodedCandidate(new IconsCache.Key(NAME, name, size), iconSource));
             }
 
-            if ( isNull(image) ) {
-                if ( extractNativeIcon ) {
-                    image = this.imageExtractor.getFrom(
-                            file.path().toFile(),
-                            FilesNativeIconImageExtractor.PathCache.USE,
-                            FilesNativeIconImageExtractor.ExtensionCache.NO_USE);
-                }
-                else {
-                    image = this.file;
-                }
+            if ( extractNativeIcon ) {
+                IconsCache.Key key = this.nativeKeyFor(file, extension);
+                candidates.add(new Candidate(key, () -> {
+                    long sourceModified = key.kind() == NATIVE_BY_PATH ? lastModifiedOf(file.path()) : nativeByExtensionVersion();
+                    return this.cache.get(key, () -> this.stored(key, sourceModified, () -> this.extractNative(file)));
+                }));
             }
         }
 
-        return new RealIcon(image, fsEntry);
+        return candidates;
+    }
+
+    private Candidate decodedCandidate(IconsCache.Key key, Path iconSource) {
+        return new Candidate(key, () -> this.load(key, iconSource));
+    }
+
+    private Image defaultImageFor(FSEntry fsEntry) {
+        if ( fsEntry.isDirectory() ) {
+            return this.folder;
+        }
+        else {
+            return this.file;
+        }
+    }
+
+    private Image decoded(Candidate candidate) {
+        Image image = this.cachedOrNearest(candidate.key);
+
+        if ( isNull(image) ) {
+            image = candidate.loader.get();
+        }
+
+        return image;
+    }
+
+    private Image cachedOrNearest(IconsCache.Key key) {
+        Image image = this.cache.getIfCached(key);
+
+        if ( isNull(image) && this.rasterizing && key.size() != NATIVE_SIZE ) {
+            image = this.cache.getNearestVariant(key);
+        }
+
+        return image;
+    }
+
+    private Image load(IconsCache.Key key, Path iconSource) {
+        return this.cache.get(key, () -> this.stored(key, lastModifiedOf(iconSource), () -> this.decode(iconSource, key.size())));
+    }
+
+    private Image decode(Path iconSource, int size) {
+        try {
+            Image image = this.loadFrom(iconSource.toString(), size);
+            if ( image.isError() ) {
+                System.out.println("Cannot load image: " + iconSource);
+                return null;
+            }
+            return image;
+        }
+        catch (IllegalArgumentException e) {
+            System.out.println("Cannot load image: " + iconSource);
+            return null;
+        }
+    }
+
+    private Image stored(IconsCache.Key key, long sourceModified, Supplier<Image> loader) {
+        Image image = this.store.get(key, sourceModified);
+
+        if ( isNull(image) ) {
+            image = loader.get();
+            this.store.put(key, sourceModified, image);
+        }
+
+        return image;
+    }
+
+    private static long nativeByExtensionVersion() {
+        return currentTimeMillis() / NATIVE_BY_EXTENSION_TTL_MILLIS;
+    }
+
+    private static long lastModifiedOf(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        }
+        catch (IOException e) {
+            return IconsStore.NO_SOURCE;
+        }
+    }
+
+    private IconsCache.Key nativeKeyFor(File file, Optional<Extension> extension) {
+        if ( extension.isPresent() ) {
+            String extensionName = extension.get().name().toLowerCase();
+            if ( ! EXTENSIONS_WITH_ICON_PER_FILE.contains(extensionName) ) {
+                return new IconsCache.Key(NATIVE_BY_EXTENSION, extensionName, NATIVE_SIZE);
+            }
+        }
+
+        return new IconsCache.Key(NATIVE_BY_PATH, file.path().toString(), NATIVE_SIZE);
+    }
+
+    private Image extractNative(File file) {
+        return this.imageExtractor.getFrom(
+                file.path().toFile(),
+                FilesNativeIconImageExtractor.PathCache.NO_USE,
+                FilesNativeIconImageExtractor.ExtensionCache.NO_USE);
+    }
+
+    @Override
+    public void warmUpInBackground() {
+        NAVIGATOR_THREADS.runNamedAsync("icons warm up", () -> {
+            long start = currentTimeMillis();
+            IconsRules rules = this.rules.join();
+            int size = this.pixelSize();
+            int warmed = 0;
+
+            Extension extension;
+            Path iconSource;
+            for ( String commonExtension : COMMON_EXTENSIONS ) {
+                extension = this.extensions.getBy(commonExtension);
+                iconSource = rules.byExtension(extension);
+                if ( nonNull(iconSource) ) {
+                    this.load(new IconsCache.Key(EXTENSION, extension.name(), size), iconSource);
+                    warmed++;
+                }
+            }
+
+            System.out.println(format("[STARTUP] [icons] warmed %s common extensions in %sms",
+                    warmed, currentTimeMillis() - start));
+        });
     }
 
     @Override
@@ -197,4 +420,9 @@ class RealIcons implements Icons {
         return this.iconMarginSize;
     }
 
+    @Override
+    public IconsCache.Statistics cacheStatistics() {
+        return this.cache.statistics();
+    }
+
 }
@@ -0,0 +1,177 @@
+package diarsid.navigator.view.operations;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javafx.application.Platform;
+import javafx.scene.Node;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+
+import diarsid.navigator.filesystem.operations.FileOperation;
+import diarsid.navigator.filesystem.operations.FileOperations;
+import diarsid.navigator.view.ViewComponent;
+
+import static java.lang.String.format;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+import static javafx.geometry.Pos.CENTER_LEFT;
+import static javafx.scene.layout.Priority.ALWAYS;
+
+import static diarsid.navigator.filesystem.operations.FileOperation.State.FAILED;
+import static diarsid.navigator.filesystem.operations.FileOperation.State.QUEUED;
+
+public class FileOperationsPanel implements ViewComponent {
+
+    private static class OperationRow {
+
+        private final HBox box;
+        private final Label description;
+        private final Label state;
+        private final ProgressBar progress;
+        private final Button action;
+
+        private OperationRow(FileOperation operation) {
+            this.description = new Label(operation.description());
+            this.state = new Label();
+            this.progress = new ProgressBar();
+            this.action = new Button();
+
+            this.description.setMaxWidth(Double.MAX_VALUE);
+            HBox.setHgrow(this.description, ALWAYS);
+
+            this.box = new HBox(this.description, this.state, this.progress, this.action);
+            this.box.setAlignment(CENTER_LEFT);
+            this.box.getStyleClass().add("file-operation");
+        }
+
+        private void update(FileOperation operation) {
+            FileOperation.State state = operation.state();
+
+            boolean countsItems = operation.itemsFound() > 0;
+            long done = countsItems ? operation.itemsDone() : operation.done();
+            long total = countsItems ? operation.itemsFound() : operation.total();
+
+            if ( state == FAILED ) {
+                this.state.setText(format("failed: %s", operation.failure()));
+            }
+            else if ( nonNull(operation.failure()) ) {
+                this.state.setText(format("stopping: %s", operation.failure()));
+            }
+            else {
+                this.state.setText(format("%s %s/%s", state.name().toLowerCase(Locale.ROOT), done, total));
+            }
+
+            if ( state == QUEUED ) {
+                this.progress.setProgress(0);
+            }
+            else if ( operation.bytesFound() > 0 ) {
+                this.progress.setProgress((double) operation.bytesDone() / operation.bytesFound());
+            }
+            else {
+                this.progress.setProgress(total == 0 ? 1 : (double) done / total);
+            }
+        }
+    }
+
+    private final FileOperations operations;
+    private final VBox box;
+    private final Map<Long, OperationRow> rowsByIds;
+    private final Map<Long, FileOperation> failed;
+    private final Queue<FileOperation> failedRecently;
+    private final AtomicBoolean refreshScheduled;
+
+    public FileOperationsPanel(FileOperations operations) {
+        this.operations = operations;
+        this.box = new VBox();
+        this.box.getStyleClass().add("file-operations");
+        this.rowsByIds = new HashMap<>();
+        this.failed = new LinkedHashMap<>();
+        this.failedRecently = new ConcurrentLinkedQueue<>();
+        this.refreshScheduled = new AtomicBoolean(false);
+
+        this.operations.listen(this::onOperationChanged);
+        this.refresh();
+    }
+
+    private void onOperationChanged(FileOperation operation) {
+        if ( operation.state() == FAILED ) {
+            this.failedRecently.add(operation);
+        }
+
+        if ( this.refreshScheduled.compareAndSet(false, true) ) {
+            Platform.runLater(() -> {
+                this.refreshScheduled.set(false);
+                this.refresh();
+            });
+        }
+    }
+
+    private void refresh() {
+        FileOperation failedOperation = this.failedRecently.poll();
+        while ( nonNull(failedOperation) ) {
+            this.failed.put(failedOperation.id(), failedOperation);
+            failedOperation = this.failedRecently.poll();
+        }
+
+        List<FileOperation> shown = new ArrayList<>(this.operations.operations());
+        shown.addAll(this.failed.values());
+
+        Map<Long, OperationRow> rows = new HashMap<>();
+        List<Node> nodes = new ArrayList<>();
+        OperationRow row;
+        for ( FileOperation operation : shown ) {
+            row = this.rowsByIds.get(operation.id());
+
+            if ( isNull(row) ) {
+                row = new OperationRow(operation);
+            }
+
+            row.update(operation);
+            this.bindAction(row, operation);
+            rows.put(operation.id(), row);
+            nodes.add(row.box);
+        }
+
+        this.rowsByIds.clear();
+        this.rowsByIds.putAll(rows);
+        this.box.getChildren().setAll(nodes);
+
+        boolean hasOperations = ! nodes.isEmpty();
+        this.box.setVisible(hasOperations);
+        this.box.setManaged(hasOperations);
+    }
+
+    private void bindAction(OperationRow row, FileOperation operation) {
+        if ( operation.state() == FAILED ) {
+            row.action.setText("dismiss");
+            row.action.setDisable(false);
+            row.action.setOnAction(event -> {
+                this.failed.remove(operation.id());
+                this.refresh();
+            });
+        }
+        else {
+            row.action.setText("cancel");
+            row.action.setDisable(operation.isCancelRequested());
+            row.action.setOnAction(event -> {
+                operation.cancel();
+                row.action.setDisable(true);
+            });
+        }
+    }
+
+    @Override
+    public Node node() {
+        return this.box;
+    }
+}
@@ -2,13 +2,14 @@ package diarsid.navigator.view.table;
 
 import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.collections.ListChangeListener;
 import javafx.scene.Node;
 import javafx.scene.control.Label;
@@ -17,43 +18,60 @@ import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableRow;
 import javafx.scene.control.TableView;
 import javafx.scene.control.cell.PropertyValueFactory;
-import javafx.scene.image.ImageView;
+import javafx.scene.control.skin.VirtualFlow;
 import javafx.scene.input.ScrollEvent;
 import javafx.scene.layout.HBox;
 
 import diarsid.filesystem.api.Directory;
 import diarsid.filesystem.api.FSEntry;
 import diarsid.filesystem.api.FileSystem;
+import diarsid.navigator.filesystem.FSChangesDispatcher;
+import diarsid.navigator.filesystem.operations.FileOperations;
 import diarsid.navigator.view.ViewComponent;
 import diarsid.navigator.view.dragdrop.DragAndDropObjectTransfer;
 import diarsid.navigator.view.fsentry.contextmenu.FSEntryContextMenuFactory;
 import diarsid.navigator.view.icons.Icons;
+import diarsid.navigator.view.icons.IconsLoading;
 import diarsid.support.javafx.mouse.ClickOrDragDetector;
 import diarsid.support.javafx.controls.FrameSelection;
 import diarsid.support.objects.references.Possible;
 
 import static java.lang.String.format;
-import static java.lang.System.currentTimeMillis;
-import static java.util.stream.Collectors.toList;
+import static java.util.Collections.singletonList;
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
 import static javafx.scene.control.SelectionMode.MULTIPLE;
 import static javafx.scene.layout.Priority.ALWAYS;
 
+import static diarsid.navigator.Navigator.NAVIGATOR_DEBUG;
 import static diarsid.support.objects.references.References.simplePossibleButEmpty;
 
 
 public class FilesTable implements ViewComponent {
 
+    private static final int ICONS_LOADING_THREADS = 2;
+
+    private final FSChangesDispatcher changes;
     private final Icons icons;
+    private final IconsLoading iconsLoading;
     private final TableView<FilesTableItem> tableView;
+    private final FilesTableItems items;
     private final FrameSelection selection;
     private final DragAndDropObjectTransfer<List<FSEntry>> dragAndDropFiles;
+    private final DragAndDropObjectTransfer<List<FSEntry>>.DropEligibility<Directory> filesDropEligibility;
+    private final FileOperations fileOperations;
     private final FSEntryContextMenuFactory contextMenuFactory;
     private final Possible<Directory> directory;
+    private final Possible<FilesTableListing> listing;
+    private final Label placeholder;
+    private final Map<Path, FilesTableItem> itemsByPaths;
     private final Consumer<FilesTableItem> onItemInvoked;
     private final SingleEditingPerTable editing;
     private final FilesTableFrameSelectionDragScrollListener selectionListener;
 //    private final Set<Integer> selectedIndiciesCopy;
     private final Object tableLock;
+    private VirtualFlow<FilesTableRow> tableViewRows;
+    private FSChangesDispatcher.Subscription subscription;
 
     private final AtomicInteger scrollSelectionMaxIndex;
     private final AtomicInteger scrollSelectionMinIndex;
@@ -67,13 +85,27 @@ public class FilesTable implements ViewComponent {
             FrameSelection frameSelection,
             Consumer<FilesTableItem> onItemInvoked,
             BiConsumer<FSEntry, String> onRename,
-            DragAndDropObjectTransfer<List<FSEntry>> dragAndDropFiles) {
+            DragAndDropObjectTransfer<List<FSEntry>> dragAndDropFiles,
+            FSChangesDispatcher changes,
+            FileOperations fileOperations) {
+        this.changes = changes;
+        this.fileOperations = fileOperations;
         this.icons = icons;
-        this.tableView = new TableView<>();
+        this.iconsLoading = new IconsLoading(this.icons, ICONS_LOADING_THREADS);
+        this.items = new FilesTableItems();
+        this.tableView = new TableView<>(this.items);
+        this.tableView.setSortPolicy(table -> {
+            this.items.orderBy(table.getComparator());
+            return true;
+        });
         this.selection = frameSelection;
         this.dragAndDropFiles = dragAndDropFiles;
+        this.filesDropEligibility = dragAndDropFiles.newDropEligibility(Directory::path, FilesTableRow::canHostAll);
         this.onItemInvoked = onItemInvoked;
         this.directory = simplePossibleButEmpty();
+        this.listing = simplePossibleButEmpty();
+        this.placeholder = new Label("empty directory");
+        this.itemsByPaths = new HashMap<>();
 
         this.scrollSelectionMaxIndex = new AtomicInteger(-1);
         this.scrollSelectionMinIndex = new AtomicInteger(-1);
@@ -81,21 +113,21 @@ public class FilesTable implements ViewComponent {
         this.contextMenuFactory = contextMenuFactory;
 
         this.tableView.setContextMenu(this.contextMenuFactory.createNewFor(this.directory));
-        this.tableView.setPlaceholder(new Label("empty directory"));
+        this.tableView.setPlaceholder(this.placeholder);
 
-        TableColumn<FilesTableItem, ImageView> columnIcons = new TableColumn<>();
+        TableColumn<FilesTableItem, FSEntry> columnIcons = new TableColumn<>();
         TableColumn<FilesTableItem, String> columnNames = new TableColumn<>("Name");
         TableColumn<FilesTableItem, String> columnTypes = new TableColumn<>("Type");
         TableColumn<FilesTableItem, String> columnSizes = new TableColumn<>("Size");
 
         this.editing = new SingleEditingPerTable();
 
-        columnIcons.setCellFactory(column -> new FilesTableCellForIcon());
+        columnIcons.setCellFactory(column -> new FilesTableCellForIcon(this.icons, this.iconsLoading));
         columnNames.setCellFactory(column -> new FilesTableCellForName(onRename));
         columnTypes.setCellFactory(column -> new FilesTableCellForExtType());
         columnSizes.setCellFactory(column -> new FilesTableCellForSize());
 
-        columnIcons.setCellValueFactory(new PropertyValueFactory<>("icon"));
+        columnIcons.setCellValueFactory(cellData -> new ReadOnlyObjectWrapper<>(cellData.getValue().fsEntry()));
         columnNames.setCellValueFactory(new PropertyValueFactory<>("name"));
         columnTypes.setCellValueFactory(new PropertyValueFactory<>("extType"));
         columnSizes.setCellValueFactory(new PropertyValueFactory<>("sizeFormat"));
@@ -172,6 +204,7 @@ public class FilesTable implements ViewComponent {
                     scrollBar.getVisibleAmount();
 
                     scrollBar.valueProperty().addListener((observable, oldValue, newValue) -> {
+                        this.onViewportChanged();
                         if ((Double) newValue == 1.0) {
                             System.out.println("Bottom!");
                         } else if ((Double) newValue == 0.0) {
@@ -182,6 +215,10 @@ public class FilesTable implements ViewComponent {
 
                 });
 
+        this.tableView.heightProperty().addListener((observable, oldValue, newValue) -> {
+            this.onViewportChanged();
+        });
+
         this.selectionListener = new FilesTableFrameSelectionDragScrollListener(
                 this::isDraggingAllowed, this.tableView, this.selection, this.dragAndDropFiles);
 
@@ -198,35 +235,47 @@ public class FilesTable implements ViewComponent {
 
         HBox.setHgrow(this.tableView, ALWAYS);
 
-        fileSystem.changes().listenForEntriesAdded(this::onEntriesAdded);
-        fileSystem.changes().listenForEntriesRemoved(this::onEntriesRemoved);
 
         this.tableLock = new Object();
     }
 
+    @SuppressWarnings("unchecked")
+    private void onViewportChanged() {
+        if ( isNull(this.tableViewRows) ) {
+            this.tableViewRows = this.tableView
+                    .getChildrenUnmodifiable()
+                    .stream()
+                    .filter(node -> node instanceof VirtualFlow)
+                    .map(node -> (VirtualFlow<FilesTableRow>) node)
+                    .findFirst()
+                    .orElse(null);
+        }
+
+        if ( isNull(this.tableViewRows) ) {
+            return;
+        }
+
+        FilesTableRow first = this.tableViewRows.getFirstVisibleCell();
+        FilesTableRow last = this.tableViewRows.getLastVisibleCell();
+
+        if ( nonNull(first) && nonNull(last) ) {
+            this.iconsLoading.viewportChanged(first.getIndex(), last.getIndex());
+        }
+    }
+
     private boolean isDraggingAllowed() {
         return this.editing.isNotInProcess();
     }
 
     private FilesTableItem createItem(FSEntry fsEntry) {
-        return new FilesTableItem(this.icons, fsEntry);
+        return new FilesTableItem(fsEntry);
     }
 
-    private void onEntriesAdded(List<FSEntry> fsEntries) {
+    private void onEntriesAdded(List<FSEntry> entries) {
         if ( this.directory.isNotPresent() ) {
             return;
         }
 
-        Directory directory = this.directory.orThrow();
-
-        List<FSEntry> entries = new ArrayList<>();
-
-        for ( FSEntry addedEntry : fsEntries ) {
-            if ( directory.isDirectParentOf(addedEntry) ) {
-                entries.add(addedEntry);
-            }
-        }
-
         System.out.println("[TABLE ADD] " + entries);
         this.addAll(entries);
     }
@@ -236,15 +285,17 @@ public class FilesTable implements ViewComponent {
 //            System.out.println("[TABLE SELECTION] restore selection: " + this.selectedIndiciesCopy);
             this.doSelectedIndiciesCopy = false;
 
+            List<FilesTableItem> newItems = new ArrayList<>();
             FilesTableItem item;
             for ( FSEntry entry : entries ) {
                 if ( this.contains(entry) ) {
                     continue;
                 }
                 item = this.createItem(entry);
-                this.tableView.getItems().add(item);
+                this.itemsByPaths.put(entry.path(), item);
+                newItems.add(item);
             }
-            Collections.sort(this.tableView.getItems());
+            this.items.insertAllSorted(newItems);
 
             this.tableView.getSelectionModel().clearSelection();
 //            this.selectedIndiciesCopy.forEach(this::selectIndex);
@@ -254,7 +305,29 @@ public class FilesTable implements ViewComponent {
     }
 
     private boolean contains(FSEntry fsEntry) {
-        return this.tableView.getItems().stream().anyMatch(item -> item.is(fsEntry));
+        return this.itemsByPaths.containsKey(fsEntry.path());
+    }
+
+    private void appendItems(List<FilesTableItem> items) {
+        List<FilesTableItem> itemsToAppend = new ArrayList<>(items.size());
+        for ( FilesTableItem item : items ) {
+            if ( this.itemsByPaths.putIfAbsent(item.fsEntry().path(), item) == null ) {
+                itemsToAppend.add(item);
+            }
+        }
+        this.items.insertAllSorted(itemsToAppend);
+    }
+
+    private void clearItems() {
+        this.itemsByPaths.clear();
+        this.items.clear();
+    }
+
+    private void removeItems(List<FilesTableItem> itemsToRemove) {
+        for ( FilesTableItem item : itemsToRemove ) {
+            this.itemsByPaths.remove(item.fsEntry().path());
+        }
+        this.items.removeAllFound(itemsToRemove);
     }
 
     private void onEntriesRemoved(List<Path> paths) {
@@ -262,17 +335,16 @@ public class FilesTable implements ViewComponent {
             return;
         }
 
-        Directory directory = this.directory.orThrow();
+        Path directoryPath = this.directory.orThrow().path();
 
         List<Path> pathsToRemove = new ArrayList<>();
 
         for ( Path removedPath : paths ) {
-            if ( directory.has(removedPath) ) {
+            if ( directoryPath.startsWith(removedPath) ) {
                 this.clear();
+                return;
             }
-            else if ( directory.isDirectParentOf(removedPath) ) {
-                pathsToRemove.add(removedPath);
-            }
+            pathsToRemove.add(removedPath);
         }
 
         if ( pathsToRemove.isEmpty() ) {
@@ -283,40 +355,77 @@ public class FilesTable implements ViewComponent {
     }
 
     public void clear() {
+        this.listing.ifPresent(FilesTableListing::cancel);
+        this.listing.nullify();
+        this.iconsLoading.cancelAll();
+
         synchronized ( this.tableLock ) {
-            this.tableView.getItems().clear();
+            this.clearItems();
         }
 
         if ( this.directory.isPresent() ) {
             this.directory.nullify();
         }
 
+        this.unsubscribe();
+
         this.editing.cancel();
     }
 
+    private void unsubscribe() {
+        if ( nonNull(this.subscription) ) {
+            this.subscription.cancel();
+            this.subscription = null;
+        }
+    }
+
     public void show(Directory newDirectory) {
-        boolean sameDirectory = this.directory.equalsTo(newDirectory);
         this.editing.cancel();
         this.directory.resetTo(newDirectory);
-        List<FSEntry> children = new ArrayList<>();
-        long start = currentTimeMillis();
-        newDirectory.feedChildren(children::addAll);
-        long stop = currentTimeMillis();
-        System.out.println("[TABLE] [feed] " + (stop - start));
-        this.set(children);
+        this.unsubscribe();
+        this.subscription = this.changes.subscribe(newDirectory.path(), this::onEntriesAdded, this::onEntriesRemoved);
+        this.listing.ifPresent(FilesTableListing::cancel);
+        this.iconsLoading.cancelAll();
+
+        synchronized ( this.tableLock ) {
+            this.clearItems();
+        }
+        this.tableView.getSelectionModel().clearSelection();
+        this.placeholder.setText("loading...");
+
+        FilesTableListing newListing = new FilesTableListing(
+                newDirectory,
+                this::createItem,
+                this::onListingFirstBatch,
+                this::onListingNextBatch,
+                this::onListingCompleted);
+
+        this.listing.resetTo(newListing);
+        newListing.start();
+    }
+
+    private void onListingFirstBatch(List<FilesTableItem> items) {
+        synchronized ( this.tableLock ) {
+            this.appendItems(items);
+        }
+
         if ( this.tableView.getItems().size() > 0 ) {
             this.tableView.scrollTo(0);
         }
+    }
 
-        if ( sameDirectory ) {
-//            System.out.println("[TABLE SELECTION] restore selection: " + this.selectedIndiciesCopy);
-            this.doSelectedIndiciesCopy = false;
-//            this.selectedIndiciesCopy.forEach(this::selectIndex);
-            this.doSelectedIndiciesCopy = true;
-            System.out.println("[TABLE SELECTION] restore selection stop");
+    private void onListingNextBatch(List<FilesTableItem> items) {
+        synchronized ( this.tableLock ) {
+            this.appendItems(items);
         }
-        else {
-            this.tableView.getSelectionModel().clearSelection();
+    }
+
+    private void onListingCompleted(FilesTableListing.Latency latency) {
+        this.placeholder.setText("empty directory");
+        this.listing.nullify();
+        if ( NAVIGATOR_DEBUG ) {
+            System.out.println(latency);
+            System.out.println(this.icons.cacheStatistics());
         }
     }
 
@@ -325,21 +434,6 @@ public class FilesTable implements ViewComponent {
         this.tableView.getSelectionModel().select(index);
     }
 
-    private void set(List<FSEntry> entries) {
-        long start = currentTimeMillis();
-        synchronized ( this.tableLock ) {
-            List<FilesTableItem> items = entries
-                    .stream()
-                    .map(this::createItem)
-                    .collect(toList());
-            this.tableView.getItems().setAll(items);
-        }
-        long stop = currentTimeMillis();
-        if ( entries.size() > 20 ) {
-            System.out.println("[TABLE] [set] " + (stop - start));
-        }
-    }
-
     @Override
     public Node node() {
         return this.tableView;
@@ -347,13 +441,11 @@ public class FilesTable implements ViewComponent {
 
     public void remove(FSEntry fsEntry) {
         synchronized ( this.tableLock ) {
-            Optional<FilesTableItem> fileTableItem = this.tableView
-                    .getItems()
-                    .stream()
-                    .filter(item -> fsEntry.equals(item.fsEntry()))
-                    .findFirst();
+            FilesTableItem item = this.itemsByPaths.get(fsEntry.path());
 
-            fileTableItem.ifPresent(tableItem -> this.tableView.getItems().remove(tableItem));
+            if ( nonNull(item) && item.is(fsEntry) ) {
+                this.removeItems(singletonList(item));
+            }
         }
     }
 
@@ -363,11 +455,14 @@ public class FilesTable implements ViewComponent {
         }
 
         synchronized ( this.tableLock ) {
-            List<FilesTableItem> itemsToRemove = this.tableView
-                    .getItems()
-                    .stream()
-                    .filter(item -> fsEntries.contains(item.fsEntry()))
-                    .collect(toList());
+            List<FilesTableItem> itemsToRemove = new ArrayList<>();
+            FilesTableItem item;
+            for ( FSEntry fsEntry : fsEntries ) {
+                item = this.itemsByPaths.get(fsEntry.path());
+                if ( nonNull(item) && item.is(fsEntry) ) {
+                    itemsToRemove.add(item);
+                }
+            }
 
             if (itemsToRemove.isEmpty()) {
                 return;
@@ -378,7 +473,7 @@ public class FilesTable implements ViewComponent {
 //
 //        }
 
-            this.tableView.getItems().removeAll(itemsToRemove);
+            this.removeItems(itemsToRemove);
         }
     }
 
@@ -389,12 +484,15 @@ public class FilesTable implements ViewComponent {
         }
 
         synchronized ( this.tableLock ) {
-            List<FilesTableItem> itemsToRemove = this.tableView
-                    .getItems()
-                    .stream()
-                    .filter(item -> paths.contains(item.fsEntry().path()))
-                    .peek(item -> System.out.println("[TABLE REMOVE] " + item.fsEntry().path()))
-                    .collect(toList());
+            List<FilesTableItem> itemsToRemove = new ArrayList<>();
+            FilesTableItem item;
+            for ( Path path : paths ) {
+                item = this.itemsByPaths.get(path);
+                if ( nonNull(item) ) {
+                    System.out.println("[TABLE REMOVE] " + path);
+                    itemsToRemove.add(item);
+                }
+            }
 
             if (itemsToRemove.isEmpty()) {
                 return;
@@ -405,7 +503,7 @@ public class FilesTable implements ViewComponent {
 //
 //        }
 
-            this.tableView.getItems().removeAll(itemsToRemove);
+            this.removeItems(itemsToRemove);
         }
     }
 
@@ -415,7 +513,9 @@ public class FilesTable implements ViewComponent {
                 this.directory,
                 this.onItemInvoked,
                 this.dragAndDropFiles,
+                this.filesDropEligibility,
                 this.editing,
+                this.fileOperations,
                 this::onRowScrolled);
     }
 
@@ -1,25 +1,55 @@
 package diarsid.navigator.view.table;
 
+import javafx.beans.property.ReadOnlyDoubleProperty;
 import javafx.scene.image.ImageView;
 
+import diarsid.filesystem.api.FSEntry;
+import diarsid.navigator.view.icons.Icons;
+import diarsid.navigator.view.icons.IconsLoading;
+import diarsid.support.objects.references.Possible;
+
 import static javafx.geometry.Pos.CENTER;
 
-public class FilesTableCellForIcon extends FilesTableCell<ImageView> {
+import static diarsid.support.objects.references.References.simplePossibleButEmpty;
+
+public class FilesTableCellForIcon extends FilesTableCell<FSEntry> {
+
+    private final Icons icons;
+    private final IconsLoading iconsLoading;
+    private final ImageView iconView;
+    private final Possible<IconsLoading.Request> iconLoadingRequest;
 
-    public FilesTableCellForIcon() {
+    public FilesTableCellForIcon(Icons icons, IconsLoading iconsLoading) {
+        this.icons = icons;
+        this.iconsLoading = iconsLoading;
+        this.iconLoadingRequest = simplePossibleButEmpty();
         this.setAlignment(CENTER);
+
+        this.iconView = new ImageView();
+        ReadOnlyDoubleProperty size = this.icons.iconSize();
+        this.iconView.fitWidthProperty().bind(size);
+        this.iconView.fitHeightProperty().bind(size);
+        this.iconView.setPreserveRatio(true);
+        this.iconView.getStyleClass().add("icon");
     }
 
     @Override
-    protected void updateItem(ImageView icon, boolean empty) {
-        super.updateItem(icon, empty);
+    protected void updateItem(FSEntry entry, boolean empty) {
+        super.updateItem(entry, empty);
+
+        this.iconLoadingRequest.ifPresent(IconsLoading.Request::cancel);
+        this.iconLoadingRequest.nullify();
 
-        if (empty || icon == null ) {
+        if (empty || entry == null ) {
+            this.iconView.setImage(null);
             super.setGraphic(null);
         }
         else {
-            FilesTableItem item = super.getTableRow().getItem();
-            super.setGraphic(icon);
+            this.iconView.setImage(this.icons.getDefaultFor(entry).image());
+            super.setGraphic(this.iconView);
+
+            IconsLoading.Request request = this.iconsLoading.load(entry, super.getIndex(), this.iconView::setImage);
+            this.iconLoadingRequest.resetTo(request);
         }
     }
 }
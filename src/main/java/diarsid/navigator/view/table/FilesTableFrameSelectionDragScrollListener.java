@@ -6,6 +6,7 @@ import java.util.function.Supplier;
 import javafx.application.Platform;
 import javafx.geometry.Bounds;
 import javafx.scene.Node;
+import javafx.scene.control.MultipleSelectionModel;
 import javafx.scene.control.TableRow;
 import javafx.scene.control.TableView;
 import javafx.scene.control.skin.VirtualFlow;
@@ -20,6 +21,8 @@ import diarsid.navigator.view.dragdrop.DragAndDropObjectTransfer;
 import diarsid.support.javafx.mouse.ClickOrDragDetector;
 import diarsid.support.javafx.controls.FrameSelection;
 
+import static java.lang.Math.max;
+import static java.lang.Math.min;
 import static java.lang.String.format;
 import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
@@ -31,14 +34,20 @@ public class FilesTableFrameSelectionDragScrollListener implements ClickOrDragDe
 
     static class ScrollSession {
 
+        private static final int MAX_INDEXES_CLEARED_ONE_BY_ONE = 32;
+
         final TableView<FilesTableItem> tableView;
         TableRow<FilesTableItem> firstRow;
         TableRow<FilesTableItem> lastRow;
         int firstIndex;
         int lastIndex;
+        int selectedFrom;
+        int selectedTo;
 
         public ScrollSession(TableView<FilesTableItem> tableView) {
             this.tableView = tableView;
+            this.selectedFrom = -1;
+            this.selectedTo = -1;
         }
 
         void startWith(TableRow<FilesTableItem> row) {
@@ -60,7 +69,6 @@ public class FilesTableFrameSelectionDragScrollListener implements ClickOrDragDe
 
             int indexFrom;
             int indexTo;
-            int diff;
             if ( firstIndex < lastIndex ) {
                 indexFrom = firstIndex;
                 indexTo = lastIndex;
@@ -69,27 +77,57 @@ public class FilesTableFrameSelectionDragScrollListener implements ClickOrDragDe
                 indexFrom = lastIndex;
                 indexTo = firstIndex;
             }
-            diff = indexTo - indexFrom;
 
-            this.tableView.getSelectionModel().clearSelection();
-            if ( diff == 0 ) {
-                this.tableView.getSelectionModel().select(indexFrom);
+            this.selectRange(indexFrom, indexTo);
+        }
+
+        private void selectRange(int from, int to) {
+            if ( from == this.selectedFrom && to == this.selectedTo ) {
+                return;
             }
-            else if ( diff == 1 ) {
-                this.tableView.getSelectionModel().select(indexFrom);
-                this.tableView.getSelectionModel().select(indexFrom + 1);
+
+            MultipleSelectionModel<FilesTableItem> selectionModel = this.tableView.getSelectionModel();
+
+            boolean noSelectedRange = this.selectedFrom < 0;
+            boolean selectionChangedOutside = noSelectedRange ||
+                    selectionModel.getSelectedIndices().size() != this.selectedTo - this.selectedFrom + 1;
+
+            if ( selectionChangedOutside || this.countToUnselect(from, to) > MAX_INDEXES_CLEARED_ONE_BY_ONE ) {
+                selectionModel.clearSelection();
+                selectionModel.selectRange(from, to + 1);
             }
             else {
-                for (int i = indexFrom; i <= indexTo; i++) {
-                    this.tableView.getSelectionModel().select(i);
+                for ( int i = this.selectedFrom; i < from && i <= this.selectedTo; i++ ) {
+                    selectionModel.clearSelection(i);
+                }
+                for ( int i = max(to + 1, this.selectedFrom); i <= this.selectedTo; i++ ) {
+                    selectionModel.clearSelection(i);
+                }
+
+                if ( from < this.selectedFrom ) {
+                    selectionModel.selectRange(from, min(to, this.selectedFrom - 1) + 1);
+                }
+                if ( to > this.selectedTo ) {
+                    selectionModel.selectRange(max(from, this.selectedTo + 1), to + 1);
                 }
             }
+
+            this.selectedFrom = from;
+            this.selectedTo = to;
+        }
+
+        private int countToUnselect(int from, int to) {
+            int selected = this.selectedTo - this.selectedFrom + 1;
+            int kept = max(0, min(to, this.selectedTo) - max(from, this.selectedFrom) + 1);
+            return selected - kept;
         }
 
         void stop() {
             firstRow = null;
             firstIndex = -1;
             lastIndex = -1;
+            selectedFrom = -1;
+            selectedTo = -1;
         }
     }
 
@@ -0,0 +1,267 @@
+package diarsid.navigator.view.table;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import javafx.collections.ModifiableObservableListBase;
+
+import static java.util.Comparator.naturalOrder;
+import static java.util.Objects.isNull;
+
+class FilesTableItems extends ModifiableObservableListBase<FilesTableItem> {
+
+    private static final int MERGE_THRESHOLD = 32;
+
+    private List<FilesTableItem> items;
+    private Comparator<? super FilesTableItem> order;
+
+    FilesTableItems() {
+        this.items = new ArrayList<>();
+        this.order = naturalOrder();
+    }
+
+    void orderBy(Comparator<? super FilesTableItem> comparator) {
+        if ( isNull(comparator) ) {
+            this.order = naturalOrder();
+        }
+        else {
+            this.order = comparator;
+        }
+
+        if ( this.items.size() > 1 ) {
+            List<FilesTableItem> sorted = new ArrayList<>(this.items);
+            sorted.sort(this.order);
+            this.setAll(sorted);
+        }
+    }
+
+    void insertAllSorted(Collection<FilesTableItem> newItems) {
+        if ( newItems.isEmpty() ) {
+            return;
+        }
+
+        List<FilesTableItem> batch = new ArrayList<>(newItems);
+        batch.sort(this.order);
+
+        int size = this.items.size();
+
+        if ( size == 0 || this.order.compare(this.items.get(size - 1), batch.get(0)) <= 0 ) {
+            this.addAll(batch);
+            return;
+        }
+
+        super.beginChange();
+        try {
+            if ( batch.size() > MERGE_THRESHOLD ) {
+                this.merge(batch);
+            }
+            else {
+                this.insertOneByOne(batch);
+            }
+        }
+        finally {
+            super.endChange();
+        }
+    }
+
+    private void insertOneByOne(List<FilesTableItem> batch) {
+        int from = 0;
+        int index;
+        for ( FilesTableItem item : batch ) {
+            index = this.insertionIndexOf(item, from);
+            this.items.add(index, item);
+            super.nextAdd(index, index + 1);
+            from = index + 1;
+        }
+    }
+
+    private void merge(List<FilesTableItem> batch) {
+        List<FilesTableItem> merged = new ArrayList<>(this.items.size() + batch.size());
+        int[] addedIndexes = new int[batch.size()];
+
+        int i = 0;
+        int j = 0;
+        while ( i < this.items.size() && j < batch.size() ) {
+            if ( this.order.compare(batch.get(j), this.items.get(i)) < 0 ) {
+                addedIndexes[j] = merged.size();
+                merged.add(batch.get(j));
+                j++;
+            }
+            else {
+                merged.add(this.items.get(i));
+                i++;
+            }
+        }
+
+        while ( i < this.items.size() ) {
+            merged.add(this.items.get(i));
+            i++;
+        }
+
+        while ( j < batch.size() ) {
+            addedIndexes[j] = merged.size();
+            merged.add(batch.get(j));
+            j++;
+        }
+
+        this.items = merged;
+
+        for ( int addedIndex : addedIndexes ) {
+            super.nextAdd(addedIndex, addedIndex + 1);
+        }
+    }
+
+    void removeAllFound(Collection<FilesTableItem> itemsToRemove) {
+        if ( itemsToRemove.isEmpty() ) {
+            return;
+        }
+
+        int[] indexes = new int[itemsToRemove.size()];
+        int found = 0;
+        int index;
+        for ( FilesTableItem item : itemsToRemove ) {
+            index = this.find(item);
+            if ( index > -1 ) {
+                indexes[found] = index;
+                found++;
+            }
+        }
+
+        if ( found == 0 ) {
+            return;
+        }
+
+        Arrays.sort(indexes, 0, found);
+
+        super.beginChange();
+        try {
+            FilesTableItem removed;
+            int previous = -1;
+            for ( int k = found - 1; k > -1; k-- ) {
+                index = indexes[k];
+                if ( index == previous ) {
+                    continue;
+                }
+                removed = this.items.remove(index);
+                super.nextRemove(index, removed);
+                previous = index;
+            }
+        }
+        finally {
+            super.endChange();
+        }
+    }
+
+    int find(FilesTableItem item) {
+        int low = 0;
+        int high = this.items.size() - 1;
+        int middle;
+        int comparison;
+        FilesTableItem middleItem;
+
+        while ( low <= high ) {
+            middle = (low + high) >>> 1;
+            middleItem = this.items.get(middle);
+            comparison = this.order.compare(middleItem, item);
+
+            if ( comparison < 0 ) {
+                low = middle + 1;
+            }
+            else if ( comparison > 0 ) {
+                high = middle - 1;
+            }
+            else if ( middleItem == item ) {
+                return middle;
+            }
+            else {
+                break;
+            }
+        }
+
+        return this.items.indexOf(item);
+    }
+
+    private int insertionIndexOf(FilesTableItem item, int from) {
+        int low = from;
+        int high = this.items.size() - 1;
+        int middle;
+
+        while ( low <= high ) {
+            middle = (low + high) >>> 1;
+            if ( this.order.compare(this.items.get(middle), item) <= 0 ) {
+                low = middle + 1;
+            }
+            else {
+                high = middle - 1;
+            }
+        }
+
+        return low;
+    }
+
+    @Override
+    public boolean setAll(Collection<? extends FilesTableItem> newItems) {
+        super.beginChange();
+        try {
+            List<FilesTableItem> oldItems = this.items;
+            this.items = new ArrayList<>(newItems);
+
+            if ( ! oldItems.isEmpty() ) {
+                super.nextRemove(0, oldItems);
+            }
+
+            if ( ! this.items.isEmpty() ) {
+                super.nextAdd(0, this.items.size());
+            }
+        }
+        finally {
+            super.endChange();
+        }
+
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        if ( this.items.isEmpty() ) {
+            return;
+        }
+
+        super.beginChange();
+        try {
+            List<FilesTableItem> oldItems = this.items;
+            this.items = new ArrayList<>();
+            super.nextRemove(0, oldItems);
+        }
+        finally {
+            super.endChange();
+        }
+    }
+
+    @Override
+    public FilesTableItem get(int index) {
+        return this.items.get(index);
+    }
+
+    @Override
+    public int size() {
+        return this.items.size();
+    }
+
+    @Override
+    protected void doAdd(int index, FilesTableItem item) {
+        this.items.add(index, item);
+    }
+
+    @Override
+    protected FilesTableItem doSet(int index, FilesTableItem item) {
+        return this.items.set(index, item);
+    }
+
+    @Override
+    protected FilesTableItem doRemove(int index) {
+        return this.items.remove(index);
+    }
+}
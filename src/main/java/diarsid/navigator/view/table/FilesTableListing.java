@@ -0,0 +1,244 @@
+package diarsid.navigator.view.table;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import javafx.animation.AnimationTimer;
+
+import diarsid.filesystem.api.Directory;
+import diarsid.filesystem.api.FSEntry;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.String.format;
+import static java.lang.System.nanoTime;
+import static java.util.Collections.sort;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import static diarsid.navigator.Navigator.NAVIGATOR_THREADS;
+
+/*
+ * Listing is produced on navigator threads and consumed by the JavaFX pulse:
+ * the first pulse that sees listed entries shows one screenful of them, every
+ * next pulse appends as many entries as fit into PULSE_BUDGET, so the table
+ * keeps its frame rate while a huge directory is still coming in.
+ */
+class FilesTableListing {
+
+    static final int FIRST_PAINT_SIZE = 100;
+    static final int INITIAL_BATCH_SIZE = 1000;
+    static final long PULSE_BUDGET = MILLISECONDS.toNanos(8);
+
+    static class Latency {
+
+        private final Directory directory;
+        private final int entries;
+        private final long listedMillis;
+        private final long firstRowMillis;
+        private final long completedMillis;
+
+        private Latency(Directory directory, int entries, long listedMillis, long firstRowMillis, long completedMillis) {
+            this.directory = directory;
+            this.entries = entries;
+            this.listedMillis = listedMillis;
+            this.firstRowMillis = firstRowMillis;
+            this.completedMillis = completedMillis;
+        }
+
+        Directory directory() {
+            return this.directory;
+        }
+
+        int entries() {
+            return this.entries;
+        }
+
+        long listedMillis() {
+            return this.listedMillis;
+        }
+
+        long firstRowMillis() {
+            return this.firstRowMillis;
+        }
+
+        long completedMillis() {
+            return this.completedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return format("[TABLE] [listing] %s entries:%s listed:%sms first-row:%sms completed:%sms",
+                    this.directory.path(), this.entries, this.listedMillis, this.firstRowMillis, this.completedMillis);
+        }
+    }
+
+    private final Directory directory;
+    private final Function<FSEntry, FilesTableItem> itemCreation;
+    private final Consumer<List<FilesTableItem>> onFirstBatch;
+    private final Consumer<List<FilesTableItem>> onNextBatch;
+    private final Consumer<Latency> onCompleted;
+    private final AtomicBoolean cancelled;
+    private final AtomicInteger listedEntries;
+    private final Queue<FilesTableItem> pending;
+    private final AnimationTimer pulses;
+
+    private volatile boolean listed;
+    private volatile long listedNanos;
+    private long startNanos;
+    private long firstRowNanos;
+    private boolean firstBatchPublished;
+    private int batchSize;
+
+    FilesTableListing(
+            Directory directory,
+            Function<FSEntry, FilesTableItem> itemCreation,
+            Consumer<List<FilesTableItem>> onFirstBatch,
+            Consumer<List<FilesTableItem>> onNextBatch,
+            Consumer<Latency> onCompleted) {
+        this.directory = directory;
+        this.itemCreation = itemCreation;
+        this.onFirstBatch = onFirstBatch;
+        this.onNextBatch = onNextBatch;
+        this.onCompleted = onCompleted;
+        this.cancelled = new AtomicBoolean(false);
+        this.listedEntries = new AtomicInteger(0);
+        this.pending = new ConcurrentLinkedQueue<>();
+        this.batchSize = INITIAL_BATCH_SIZE;
+
+        this.pulses = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                onPulse();
+            }
+        };
+    }
+
+    Directory directory() {
+        return this.directory;
+    }
+
+    void start() {
+        this.startNanos = nanoTime();
+        this.pulses.start();
+        NAVIGATOR_THREADS.runNamedAsync("list " + this.directory.path(), this::list);
+    }
+
+    void cancel() {
+        this.cancelled.set(true);
+    }
+
+    boolean isCancelled() {
+        return this.cancelled.get();
+    }
+
+    private void list() {
+        if ( this.isCancelled() ) {
+            return;
+        }
+
+        try {
+            this.directory.feedChildren(this::acceptListed);
+        }
+        finally {
+            this.listedNanos = nanoTime();
+            this.listed = true;
+        }
+    }
+
+    private void acceptListed(List<FSEntry> entries) {
+        List<FilesTableItem> items = new ArrayList<>(entries.size());
+
+        for ( FSEntry entry : entries ) {
+            if ( this.isCancelled() ) {
+                return;
+            }
+
+            items.add(this.itemCreation.apply(entry));
+        }
+
+        sort(items);
+        this.pending.addAll(items);
+        this.listedEntries.addAndGet(items.size());
+    }
+
+    private void onPulse() {
+        if ( this.isCancelled() ) {
+            this.pulses.stop();
+            this.pending.clear();
+            return;
+        }
+
+        boolean listedBeforeDrain = this.listed;
+
+        if ( this.firstBatchPublished ) {
+            this.publishNextBatch();
+        }
+        else {
+            this.publishFirstBatch(listedBeforeDrain);
+        }
+
+        if ( listedBeforeDrain && this.pending.isEmpty() ) {
+            this.pulses.stop();
+            this.complete();
+        }
+    }
+
+    private void publishFirstBatch(boolean listedBeforeDrain) {
+        List<FilesTableItem> batch = this.drain(FIRST_PAINT_SIZE);
+
+        if ( batch.isEmpty() && ! listedBeforeDrain ) {
+            return;
+        }
+
+        this.firstBatchPublished = true;
+        this.onFirstBatch.accept(batch);
+        this.firstRowNanos = nanoTime();
+    }
+
+    private void publishNextBatch() {
+        List<FilesTableItem> batch = this.drain(this.batchSize);
+
+        if ( batch.isEmpty() ) {
+            return;
+        }
+
+        long start = nanoTime();
+        this.onNextBatch.accept(batch);
+        long spent = nanoTime() - start;
+
+        if ( spent > PULSE_BUDGET ) {
+            this.batchSize = max(FIRST_PAINT_SIZE, this.batchSize / 2);
+        }
+        else if ( spent < PULSE_BUDGET / 2 && batch.size() == this.batchSize ) {
+            this.batchSize = min(Integer.MAX_VALUE / 2, this.batchSize * 2);
+        }
+    }
+
+    private List<FilesTableItem> drain(int limit) {
+        List<FilesTableItem> batch = new ArrayList<>(min(limit, FIRST_PAINT_SIZE * 10));
+        FilesTableItem item;
+        while ( batch.size() < limit && (item = this.pending.poll()) != null ) {
+            batch.add(item);
+        }
+        return batch;
+    }
+
+    private void complete() {
+        long completedNanos = nanoTime();
+
+        Latency latency = new Latency(
+                this.directory,
+                this.listedEntries.get(),
+                NANOSECONDS.toMillis(this.listedNanos - this.startNanos),
+                NANOSECONDS.toMillis(this.firstRowNanos - this.startNanos),
+                NANOSECONDS.toMillis(completedNanos - this.startNanos));
+
+        this.onCompleted.accept(latency);
+    }
+}
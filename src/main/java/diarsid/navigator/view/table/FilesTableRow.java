@@ -14,6 +14,7 @@ import javafx.scene.input.ScrollEvent;
 
 import diarsid.filesystem.api.Directory;
 import diarsid.filesystem.api.FSEntry;
+import diarsid.navigator.filesystem.operations.FileOperations;
 import diarsid.navigator.view.dragdrop.DragAndDropObjectTransfer;
 import diarsid.navigator.view.fsentry.contextmenu.FSEntryContextMenuFactory;
 import diarsid.support.javafx.mouse.ClickType;
@@ -26,7 +27,6 @@ import static javafx.scene.input.MouseEvent.MOUSE_PRESSED;
 import static javafx.scene.input.TransferMode.MOVE;
 
 import static diarsid.filesystem.api.Directory.Edit.FILLED;
-import static diarsid.filesystem.api.ProgressTracker.DEFAULT;
 import static diarsid.support.javafx.mouse.ClickType.DOUBLE_CLICK;
 import static diarsid.support.javafx.mouse.ClickType.SEQUENTIAL_CLICK;
 import static diarsid.support.javafx.mouse.ClickType.USUAL_CLICK;
@@ -37,17 +37,23 @@ class FilesTableRow extends TableRow<FilesTableItem> implements Supplier<FSEntry
     private final Supplier<Directory> selectedDirectory;
     private final Consumer<FilesTableItem> onItemInvoked;
     private final DragAndDropObjectTransfer<List<FSEntry>> dragAndDropFiles;
+    private final DragAndDropObjectTransfer<List<FSEntry>>.DropEligibility<Directory> filesDropEligibility;
     private final SingleEditingPerTable nameCellEditing;
+    private final FileOperations fileOperations;
 
     FilesTableRow(
             FSEntryContextMenuFactory contextMenuFactory,
             Supplier<Directory> selectedDirectory,
             Consumer<FilesTableItem> onItemInvoked,
             DragAndDropObjectTransfer<List<FSEntry>> dragAndDropFiles,
+            DragAndDropObjectTransfer<List<FSEntry>>.DropEligibility<Directory> filesDropEligibility,
             SingleEditingPerTable singleEditingPerTable,
+            FileOperations fileOperations,
             BiConsumer<ScrollEvent, FilesTableRow> onScrolled) {
         super();
+        this.fileOperations = fileOperations;
         this.dragAndDropFiles = dragAndDropFiles;
+        this.filesDropEligibility = filesDropEligibility;
         this.nameCellEditing = singleEditingPerTable;
         this.selectedDirectory = selectedDirectory;
         this.onItemInvoked = onItemInvoked;
@@ -160,13 +166,13 @@ class FilesTableRow extends TableRow<FilesTableItem> implements Supplier<FSEntry
     }
 
     private void onDragOver(DragEvent dragEvent) {
-        if ( this.canBeDropped(dragEvent) ) {
+        if ( this.canBeDropped(false) ) {
             dragEvent.acceptTransferModes(MOVE);
             dragEvent.consume();
         }
     }
 
-    private boolean canBeDropped(DragEvent dragEvent) {
+    private boolean canBeDropped(boolean evaluateNow) {
         if ( this.isEmpty() ) {
             return false;
         }
@@ -185,12 +191,19 @@ class FilesTableRow extends TableRow<FilesTableItem> implements Supplier<FSEntry
 
         Directory acceptingDirectory = fsEntry.asDirectory();
 
+        if ( evaluateNow ) {
+            return this.filesDropEligibility.isEligibleNow(acceptingDirectory);
+        }
+        else {
+            return this.filesDropEligibility.isEligible(acceptingDirectory);
+        }
+    }
+
+    static boolean canHostAll(Directory acceptingDirectory, List<FSEntry> fsEntries) {
         if ( acceptingDirectory.canNotBe(FILLED) ) {
             return false;
         }
 
-        List<FSEntry> fsEntries = this.dragAndDropFiles.get();
-
         if ( fsEntries.size() == 1 ) {
             FSEntry draggedEntry = fsEntries.get(0);
             if ( acceptingDirectory.canHost(draggedEntry) ) {
@@ -214,15 +227,22 @@ class FilesTableRow extends TableRow<FilesTableItem> implements Supplier<FSEntry
     }
 
     private void onDragDrop(DragEvent dragEvent) {
-        if ( this.canBeDropped(dragEvent) ) {
-            List<FSEntry> fsEntries = this.dragAndDropFiles.get();
+        if ( ! this.canBeDropped(true) ) {
+            return;
+        }
+
+        List<FSEntry> fsEntries = this.dragAndDropFiles.get();
+        boolean queued = false;
+
+        if ( ! fsEntries.isEmpty() ) {
             Directory acceptingDirectory = super.getItem().fsEntry().asDirectory();
-            boolean hosted = acceptingDirectory.hostAll(fsEntries, DEFAULT);
-            if ( hosted ) {
-                dragEvent.setDropCompleted(true);
-                dragEvent.consume();
-            }
+            this.fileOperations.move(fsEntries, acceptingDirectory);
+            queued = true;
         }
+
+        // the drop is complete once the move is queued, its outcome is shown by the operations panel
+        dragEvent.setDropCompleted(queued);
+        dragEvent.consume();
     }
 
     @Override
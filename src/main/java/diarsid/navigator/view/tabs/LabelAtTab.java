@@ -10,6 +10,7 @@ import javafx.scene.input.MouseEvent;
 
 import diarsid.filesystem.api.Directory;
 import diarsid.navigator.model.Tab;
+import diarsid.navigator.view.icons.Icon;
 import diarsid.navigator.view.icons.Icons;
 
 import static java.lang.Double.POSITIVE_INFINITY;
@@ -50,7 +51,7 @@ public class LabelAtTab {
         this.iconView.getStyleClass().add("icon");
 
         if ( tab.selectedDirectory().isPresent() ) {
-            this.iconView.setImage(this.icons.getFor(tab.selectedDirectory().orThrow()).image());
+            this.setIconOf(tab.selectedDirectory().orThrow());
         }
         else {
             this.iconView.setImage(this.icons.getDefaultImageForDirectory());
@@ -89,7 +90,16 @@ public class LabelAtTab {
     }
 
     private void onTabSelectedDirectoryChanged(Directory oldDirectory, Directory newDirectory) {
-        this.iconView.setImage(this.icons.getFor(newDirectory).image());
+        this.setIconOf(newDirectory);
+    }
+
+    private void setIconOf(Directory directory) {
+        Icon icon = this.icons.getFor(directory, (image) -> {
+            if ( this.tab.selectedDirectory().isPresent() && this.tab.selectedDirectory().orThrow().equals(directory) ) {
+                this.iconView.setImage(image);
+            }
+        });
+        this.iconView.setImage(icon.image());
     }
 
     private void onTabActivityChanged(Boolean oldActivity, Boolean newActivity) {
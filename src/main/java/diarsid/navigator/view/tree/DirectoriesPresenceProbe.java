@@ -0,0 +1,196 @@
+package diarsid.navigator.view.tree;
+
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javafx.application.Platform;
+
+import diarsid.filesystem.api.FSEntry;
+import diarsid.navigator.filesystem.FSChangesCoalescer;
+
+import static java.util.Objects.nonNull;
+
+import static diarsid.navigator.Navigator.NAVIGATOR_IGNORES;
+
+class DirectoriesPresenceProbe {
+
+    private static final int PRESENCE_CACHE_LIMIT = 16 * 1024;
+
+    private final Map<Path, Boolean> presenceByPaths;
+    private final Deque<DirectoriesTreeItem> visibleItems;
+    private final Deque<DirectoriesTreeItem> otherItems;
+    private final Set<DirectoriesTreeItem> pendingItems;
+    private final Queue<Runnable> probed;
+    private final AtomicBoolean applyingScheduled;
+    private final Object lock;
+
+    DirectoriesPresenceProbe(FSChangesCoalescer changes, int threads) {
+        this.presenceByPaths = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Path, Boolean> eldest) {
+                return this.size() > PRESENCE_CACHE_LIMIT;
+            }
+        });
+        this.visibleItems = new ArrayDeque<>();
+        this.otherItems = new ArrayDeque<>();
+        this.pendingItems = Collections.newSetFromMap(new IdentityHashMap<>());
+        this.probed = new ConcurrentLinkedQueue<>();
+        this.applyingScheduled = new AtomicBoolean(false);
+        this.lock = new Object();
+
+        changes.listenForEntriesAdded(this::invalidateAdded);
+        changes.listenForEntriesRemoved(this::invalidateRemoved);
+
+        Thread worker;
+        for ( int i = 0; i < threads; i++ ) {
+            worker = new Thread(this::work, "diarsid.navigator.tree-presence-probe-" + i);
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    Boolean cachedPresenceOf(Path path) {
+        return this.presenceByPaths.get(path);
+    }
+
+    void probe(DirectoriesTreeItem item) {
+        synchronized ( this.lock ) {
+            if ( this.pendingItems.add(item) ) {
+                this.otherItems.addLast(item);
+                this.lock.notify();
+            }
+        }
+    }
+
+    void prioritize(DirectoriesTreeItem item) {
+        synchronized ( this.lock ) {
+            if ( this.pendingItems.contains(item) ) {
+                this.visibleItems.addFirst(item);
+                this.lock.notify();
+            }
+        }
+    }
+
+    private void invalidateAdded(List<FSEntry> entries) {
+        Path parent;
+        for ( FSEntry entry : entries ) {
+            if ( entry.isDirectory() ) {
+                parent = entry.path().getParent();
+                if ( nonNull(parent) ) {
+                    this.presenceByPaths.remove(parent);
+                }
+            }
+        }
+    }
+
+    private void invalidateRemoved(List<Path> paths) {
+        Path parent;
+        for ( Path path : paths ) {
+            this.presenceByPaths.remove(path);
+            parent = path.getParent();
+            if ( nonNull(parent) ) {
+                this.presenceByPaths.remove(parent);
+            }
+        }
+    }
+
+    private DirectoriesTreeItem takeNext() throws InterruptedException {
+        synchronized ( this.lock ) {
+            DirectoriesTreeItem item;
+            while ( true ) {
+                item = this.visibleItems.pollFirst();
+
+                if ( item == null ) {
+                    item = this.otherItems.pollFirst();
+                }
+
+                if ( item == null ) {
+                    this.lock.wait();
+                }
+                else if ( this.pendingItems.remove(item) ) {
+                    return item;
+                }
+            }
+        }
+    }
+
+    private void work() {
+        DirectoriesTreeItem item;
+        Path path;
+        Boolean present;
+        while ( true ) {
+            try {
+                item = this.takeNext();
+            }
+            catch (InterruptedException e) {
+                return;
+            }
+
+            path = item.directory().path();
+            Boolean cached = this.presenceByPaths.get(path);
+
+            if ( nonNull(cached) ) {
+                present = cached;
+            }
+            else {
+                present = hasSubdirectories(path);
+                if ( nonNull(present) ) {
+                    this.presenceByPaths.put(path, present);
+                }
+            }
+
+            DirectoriesTreeItem probedItem = item;
+            boolean probedPresence = nonNull(present) && present;
+            this.probed.add(() -> probedItem.applyDirectoriesPresence(probedPresence));
+
+            if ( this.applyingScheduled.compareAndSet(false, true) ) {
+                Platform.runLater(this::applyProbed);
+            }
+        }
+    }
+
+    private void applyProbed() {
+        this.applyingScheduled.set(false);
+        Runnable applying;
+        while ( (applying = this.probed.poll()) != null ) {
+            applying.run();
+        }
+    }
+
+    private static Boolean hasSubdirectories(Path path) {
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(path)) {
+            for ( Path entry : entries ) {
+                if ( isShownInTree(entry) ) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        catch (IOException | DirectoryIteratorException | SecurityException e) {
+            return null;
+        }
+    }
+
+    private static boolean isShownInTree(Path path) {
+        try {
+            return Files.isDirectory(path) && ! Files.isHidden(path) && ! NAVIGATOR_IGNORES.isIgnored(path);
+        }
+        catch (IOException | SecurityException e) {
+            return false;
+        }
+    }
+}
@@ -1,18 +1,30 @@
 package diarsid.navigator.view.tree;
 
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Consumer;
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.application.Platform;
 import javafx.scene.Node;
 import javafx.scene.control.TreeCell;
 import javafx.scene.control.TreeItem;
 import javafx.scene.control.TreeView;
+import javafx.util.Duration;
 
 import diarsid.filesystem.api.Directory;
 import diarsid.filesystem.api.FSEntry;
 import diarsid.filesystem.api.FileSystem;
+import diarsid.navigator.filesystem.DirectoriesWatches;
+import diarsid.navigator.filesystem.FSChangesCoalescer;
+import diarsid.navigator.filesystem.FSChangesDispatcher;
+import diarsid.navigator.filesystem.operations.FileOperations;
 import diarsid.navigator.model.Tab;
 import diarsid.navigator.model.Tabs;
 import diarsid.navigator.view.ViewComponent;
@@ -23,15 +35,28 @@ import diarsid.navigator.view.icons.Icons;
 import diarsid.support.objects.references.Possible;
 
 import static java.lang.Double.POSITIVE_INFINITY;
+import static java.lang.String.format;
+import static java.lang.System.currentTimeMillis;
+import static java.util.Collections.emptyMap;
+import static java.util.Comparator.comparingInt;
+import static java.util.Comparator.comparingLong;
+import static java.util.concurrent.TimeUnit.MINUTES;
 import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
+import static java.util.stream.Collectors.toList;
 import static javafx.scene.input.MouseEvent.MOUSE_PRESSED;
 
-import static diarsid.support.concurrency.ThreadUtils.currentThreadTrack;
+import static diarsid.navigator.Navigator.NAVIGATOR_DEBUG;
+import static diarsid.navigator.Navigator.NAVIGATOR_THREADS;
 import static diarsid.support.objects.references.References.simplePossibleButEmpty;
 
 public class DirectoriesTree implements ViewComponent {
 
+    private static final int PRESENCE_PROBE_THREADS = 2;
+    private static final int TREE_ITEMS_BUDGET = 20_000;
+    private static final long COLLAPSED_SUBTREE_MAX_AGE = MINUTES.toMillis(10);
+    private static final Duration EVICTION_PERIOD = Duration.seconds(30);
+
     private final FileSystem fileSystem;
     private final Icons icons;
     private final Tabs tabs;
@@ -39,10 +64,21 @@ public class DirectoriesTree implements ViewComponent {
     private final Possible<Directory> selectedDirectory;
     private final Consumer<Directory> onDirectorySelected;
     private final TreeView<String> treeView;
-    private final Map<Tab, TreeItem<String>> tabsTreeRoots;
+    private final Map<Tab, DirectoriesTreeTabOverlay> tabsOverlays;
+    private final DirectoriesTreeItem machineItem;
+    private final DirectoriesPresenceProbe presenceProbe;
+    private final DirectoriesWatches watches;
+    private final FSChangesDispatcher dispatcher;
+    private final Timeline evictions;
     private final DragAndDropNodes<DirectoriesTreeCell> dragAndDropTreeCell;
     private final DragAndDropObjectTransfer<List<FSEntry>> dragAndDropFiles;
+    private final DragAndDropObjectTransfer<List<FSEntry>>.DropEligibility<Directory> filesDropEligibility;
+    private final FileOperations fileOperations;
     private final Object treeLock;
+    private boolean applyingOverlay;
+    private boolean revealing;
+    private int revealGeneration;
+    private int overlayGeneration;
 
     public DirectoriesTree(
             FileSystem fileSystem,
@@ -50,16 +86,24 @@ public class DirectoriesTree implements ViewComponent {
             Tabs tabs,
             FSEntryContextMenuFactory fsEntryContextMenuFactory,
             Consumer<Directory> onDirectorySelected,
-            DragAndDropObjectTransfer<List<FSEntry>> dragAndDropFiles) {
+            DragAndDropObjectTransfer<List<FSEntry>> dragAndDropFiles,
+            DirectoriesWatches watches,
+            FSChangesCoalescer changes,
+            FSChangesDispatcher dispatcher,
+            FileOperations fileOperations) {
         this.fileSystem = fileSystem;
+        this.watches = watches;
+        this.dispatcher = dispatcher;
+        this.fileOperations = fileOperations;
         this.icons = icons;
         this.tabs = tabs;
         this.selectedTab = simplePossibleButEmpty();
         this.selectedDirectory = simplePossibleButEmpty();
         this.onDirectorySelected = onDirectorySelected;
-        this.tabsTreeRoots = new HashMap<>();
+        this.tabsOverlays = new HashMap<>();
         this.dragAndDropTreeCell = new DragAndDropNodes<>("tree-cell");
         this.dragAndDropFiles = dragAndDropFiles;
+        this.filesDropEligibility = dragAndDropFiles.newDropEligibility(Directory::path, DirectoriesTreeCell::canHostDropped);
 
         this.treeView = new TreeView<>();
         this.treeView.setPrefHeight(POSITIVE_INFINITY);
@@ -67,8 +111,24 @@ public class DirectoriesTree implements ViewComponent {
         this.treeView.setPrefSize(100, 100);
         this.treeView.setShowRoot(false);
 
-        this.fileSystem.changes().listenForEntriesAdded(this::addAll);
-        this.fileSystem.changes().listenForEntriesRemoved(this::removeAll);
+        this.presenceProbe = new DirectoriesPresenceProbe(changes, PRESENCE_PROBE_THREADS);
+        this.machineItem = new DirectoriesTreeItem(
+                this.fileSystem.machineDirectory(),
+                this.presenceProbe,
+                this.watches,
+                this::subscribe,
+                this::onTreeItemExpanded,
+                this::onTreeItemCollapsed);
+        TreeItem<String> network = new TreeItem<>("Network");
+        this.treeView.setRoot(new DirectoriesTreeRoot(this.machineItem, network));
+        this.applyingOverlay = false;
+        this.revealing = false;
+        this.revealGeneration = 0;
+        this.overlayGeneration = 0;
+
+        this.evictions = new Timeline(new KeyFrame(EVICTION_PERIOD, (event) -> this.evictCollapsedSubtrees()));
+        this.evictions.setCycleCount(Animation.INDEFINITE);
+        this.evictions.play();
 
         this.treeView.addEventFilter(MOUSE_PRESSED, event -> {
             if ( event.isSecondaryButtonDown() ) {
@@ -111,35 +171,82 @@ public class DirectoriesTree implements ViewComponent {
         this.treeLock = new Object();
     }
 
-    private void addAll(List<FSEntry> fsEntries) {
-        synchronized ( this.treeLock ) {
-            this.treeView.getSelectionModel().clearSelection();
+    private FSChangesDispatcher.Subscription subscribe(DirectoriesTreeItem item) {
+        return this.dispatcher.subscribe(
+                item.directory().path(),
+                (entries) -> this.onEntriesAdded(item, entries),
+                (paths) -> this.onEntriesRemoved(item, paths));
+    }
 
-            fsEntries.stream()
-                    .filter(FSEntry::isDirectory)
-                    .map(FSEntry::asDirectory)
-                    .forEach(this::addInternally);
+    private void onEntriesAdded(DirectoriesTreeItem item, List<FSEntry> entries) {
+        List<Directory> directories = entries
+                .stream()
+                .filter(FSEntry::isDirectory)
+                .map(FSEntry::asDirectory)
+                .filter(Directory::isNotHidden)
+                .collect(toList());
 
+        if ( directories.isEmpty() ) {
+            return;
+        }
+
+        synchronized ( this.treeLock ) {
+            if ( item.isNotFilled() ) {
+                item.applyDirectoriesPresence(true);
+                return;
+            }
+
+            this.treeView.getSelectionModel().clearSelection();
+            item.addDirectories(directories);
             this.selectedDirectory.ifPresent(this::selectDirectoryInCurrentTab);
         }
     }
 
-    private void removeAll(List<Path> paths) {
+    private void onEntriesRemoved(DirectoriesTreeItem item, List<Path> paths) {
         synchronized ( this.treeLock ) {
-            this.treeView.getSelectionModel().clearSelection();
+            if ( item.isNotFilled() ) {
+                return;
+            }
+
+            Path directoryPath = item.directory().path();
+            boolean removedAny = false;
+            String name;
+            DirectoriesTreeItem removedItem;
+            for ( Path path : paths ) {
+                if ( ! directoryPath.equals(path.getParent()) ) {
+                    continue;
+                }
 
-            paths.forEach(this::removeInternally);
+                name = path.getFileName().normalize().toString();
+                removedItem = item.getInChildrenOrNull(name);
 
-            this.selectedDirectory.ifPresent(this::selectDirectoryInCurrentTab);
+                if ( nonNull(removedItem) && item.removeInChildren(name) ) {
+                    System.out.println("[TREE] remove " + path);
+                    this.removeFromOverlays(removedItem);
+                    removedAny = true;
+                }
+            }
+
+            if ( removedAny ) {
+                this.treeView.getSelectionModel().clearSelection();
+                this.selectedDirectory.ifPresent(this::selectDirectoryInCurrentTab);
+            }
         }
     }
 
     private void onTreeItemExpanded(DirectoriesTreeItem expandedItem) {
+        if ( this.applyingOverlay ) {
+            return;
+        }
+
+        this.selectedTab.ifPresent(tab -> this.tabsOverlays.get(tab).expanded(expandedItem));
+        this.prioritizeWatches();
+
         if ( this.selectedDirectory.isPresent() ) {
             Directory selectedDirectory = this.selectedDirectory.orThrow();
             System.out.println("EXPANDED " + expandedItem.directory().path());
             // 28.05.2021 uncomment
-            if ( expandedItem.directory().isIndirectParentOf(selectedDirectory) ) {
+            if ( ! this.revealing && expandedItem.directory().isIndirectParentOf(selectedDirectory) ) {
                 this.selectDirectoryInCurrentTab(selectedDirectory);
             }
 //            this.selectInternally(selectedDirectory);
@@ -147,6 +254,13 @@ public class DirectoriesTree implements ViewComponent {
     }
 
     private void onTreeItemCollapsed(DirectoriesTreeItem collapsedItem) {
+        if ( this.applyingOverlay ) {
+            return;
+        }
+
+        this.selectedTab.ifPresent(tab -> this.tabsOverlays.get(tab).collapsed(collapsedItem));
+        this.prioritizeWatches();
+
         System.out.println("COLLAPSED " + collapsedItem.directory().path());
         if ( this.selectedTab.isPresent() ) {
             Directory collapsedDir = collapsedItem.directory();
@@ -166,7 +280,7 @@ public class DirectoriesTree implements ViewComponent {
     }
 
     public void addNewTab(Tab tab) {
-        this.assignRootTreeItemToTab(tab);
+        this.tabsOverlays.put(tab, new DirectoriesTreeTabOverlay(tab));
     }
 
     public void activateTabAndSelectItsDirectory(Tab tab) {
@@ -174,18 +288,37 @@ public class DirectoriesTree implements ViewComponent {
             return;
         }
 
-        TreeItem<String> tabTreeRoot = this.tabsTreeRoots.get(tab);
+        DirectoriesTreeTabOverlay tabOverlay = this.tabsOverlays.get(tab);
 
-        if ( isNull(tabTreeRoot) ) {
+        if ( isNull(tabOverlay) ) {
             throw new IllegalArgumentException("Unknown tab");
         }
 
-        this.selectedTab.resetTo(tab);
+        Tab oldTab = this.selectedTab.resetTo(tab);
+        this.overlayGeneration++;
+        if ( nonNull(oldTab) ) {
+            this.applyOverlay(this.tabsOverlays.get(oldTab), tabOverlay);
+        }
+        this.restoreDormant(tabOverlay);
+
         Directory tabDirectory = tab.selectedDirectory().orThrow();
         this.selectedDirectory.resetTo(tabDirectory); //?
 
-        this.treeView.setRoot(tabTreeRoot);
         this.selectDirectoryInCurrentTab(tabDirectory);
+        this.prioritizeWatches();
+    }
+
+    private void prioritizeWatches() {
+        List<Directory> prioritized = new ArrayList<>();
+
+        this.selectedDirectory.ifPresent(directory -> {
+            prioritized.add(directory);
+            prioritized.addAll(directory.parents());
+        });
+
+        this.selectedTab.ifPresent(tab -> prioritized.addAll(this.tabsOverlays.get(tab).expandedDirectories()));
+
+        this.watches.prioritize(prioritized);
     }
 
     public void selectDirectoryInCurrentTab(Directory directory) {
@@ -195,129 +328,258 @@ public class DirectoriesTree implements ViewComponent {
         Directory oldDirectory = this.selectedDirectory.resetTo(directory);
         boolean same = nonNull(oldDirectory) && oldDirectory.equals(directory);
 
-        DirectoriesTreeItem machineItem = this.getMachineItemFromSelectedRoot();
+        System.out.println("[TREE] [SELECT] " + directory.path());
+        if ( ! same ) {
+            this.onDirectorySelected.accept(directory);
+            this.prioritizeWatches();
+        }
 
-        DirectoriesTreeItem prevParentItem = machineItem;
-        DirectoriesTreeItem parentItem = null;
-        for ( Directory parent : directory.parents() ) {
-            prevParentItem.expandIfNotExpanded();
-            parentItem = prevParentItem.getInChildrenOrCreate(parent);
-            prevParentItem = parentItem;
+        Directory directoryToReveal = directory;
+        int generation = ++this.revealGeneration;
+        List<Directory> parents = directory.parents();
+        List<Directory> directoriesToFill = this.notFilledAmong(parents);
+
+        this.prepareInBackground("tree reveal " + directory.path(), directoriesToFill, (childrenByDirectories) -> {
+            if ( generation == this.revealGeneration ) {
+                this.reveal(directoryToReveal, parents, childrenByDirectories);
+            }
+        });
+    }
+
+    private void prepareInBackground(
+            String name,
+            List<Directory> directoriesToFill,
+            Consumer<Map<Directory, List<DirectoriesTreeItem>>> onPrepared) {
+        if ( directoriesToFill.isEmpty() ) {
+            onPrepared.accept(emptyMap());
+            return;
         }
 
-        DirectoriesTreeItem directoryItem;
-        if ( nonNull(parentItem) ) {
-            directoryItem = parentItem.getInChildrenOrCreate(directory);
+        NAVIGATOR_THREADS.runNamedAsync(name, () -> {
+            Map<Directory, List<DirectoriesTreeItem>> childrenByDirectories = new HashMap<>();
+            for ( Directory directoryToFill : directoriesToFill ) {
+                childrenByDirectories.put(
+                        directoryToFill,
+                        this.machineItem.createItemsFor(DirectoriesTreeItem.listDirectoriesOf(directoryToFill)));
+            }
+
+            Platform.runLater(() -> onPrepared.accept(childrenByDirectories));
+        });
+    }
+
+    private List<Directory> notFilledAmong(List<Directory> parents) {
+        List<Directory> notFilled = new ArrayList<>();
+
+        DirectoriesTreeItem item = this.machineItem;
+        if ( item.isNotFilled() ) {
+            notFilled.add(item.directory());
         }
-        else {
-            if ( directory.equals(this.fileSystem.machineDirectory()) ) {
-                directoryItem = machineItem;
+
+        for ( Directory parent : parents ) {
+            item = isNull(item) ? null : item.getInChildrenOrNull(parent);
+            if ( isNull(item) || item.isNotFilled() ) {
+                notFilled.add(parent);
             }
-            else if ( prevParentItem.directory().equals(machineItem.directory()) ) {
-                directoryItem = machineItem.getInChildrenOrCreate(directory);
+        }
+
+        return notFilled;
+    }
+
+    private void reveal(
+            Directory directory,
+            List<Directory> parents,
+            Map<Directory, List<DirectoriesTreeItem>> childrenByDirectories) {
+        this.revealing = true;
+        try {
+            DirectoriesTreeItem machineItem = this.machineItem;
+            fillWithPrepared(machineItem, childrenByDirectories);
+
+            DirectoriesTreeItem prevParentItem = machineItem;
+            DirectoriesTreeItem parentItem = null;
+            for ( Directory parent : parents ) {
+                prevParentItem.expandIfNotExpanded();
+                parentItem = prevParentItem.getInChildrenOrCreate(parent);
+                fillWithPrepared(parentItem, childrenByDirectories);
+                prevParentItem = parentItem;
+            }
+
+            DirectoriesTreeItem directoryItem;
+            if ( nonNull(parentItem) ) {
+                parentItem.expandIfNotExpanded();
+                directoryItem = parentItem.getInChildrenOrCreate(directory);
             }
             else {
-                throw new IllegalStateException();
+                if ( directory.equals(this.fileSystem.machineDirectory()) ) {
+                    directoryItem = machineItem;
+                }
+                else if ( prevParentItem.directory().equals(machineItem.directory()) ) {
+                    machineItem.expandIfNotExpanded();
+                    directoryItem = machineItem.getInChildrenOrCreate(directory);
+                }
+                else {
+                    throw new IllegalStateException();
+                }
             }
-        }
 
 //        expandIfNotExpanded(directoryItem); // 28.05.2021 commented
 
-        System.out.println("[TREE] [SELECT] " + directoryItem.getValue());
-        currentThreadTrack("diarsid", (element) -> System.out.println("    " + element));
-        if ( ! same ) {
-            this.onDirectorySelected.accept(directory);
+            this.treeView.getSelectionModel().select(directoryItem);
+        }
+        finally {
+            this.revealing = false;
         }
-        this.treeView.getSelectionModel().select(directoryItem);
     }
 
-    private DirectoriesTreeItem getMachineItemFromSelectedRoot() {
-        TreeItem<String> root = this.treeView.getRoot();
-        return this.getMachineItemAssignedTo(root);
+    private static void fillWithPrepared(
+            DirectoriesTreeItem item,
+            Map<Directory, List<DirectoriesTreeItem>> childrenByDirectories) {
+        List<DirectoriesTreeItem> children = childrenByDirectories.get(item.directory());
+        if ( nonNull(children) && item.isNotFilled() ) {
+            item.fillWith(children);
+        }
     }
 
-    private DirectoriesTreeItem getMachineItemAssignedTo(TreeItem<String> root) {
-        Directory machineDirectory = this.fileSystem.machineDirectory();
+    private void applyOverlay(DirectoriesTreeTabOverlay oldOverlay, DirectoriesTreeTabOverlay newOverlay) {
+        List<DirectoriesTreeItem> itemsToCollapse = oldOverlay.expandedNotIn(newOverlay);
+        List<DirectoriesTreeItem> itemsToExpand = newOverlay.expandedNotIn(oldOverlay);
+
+        itemsToCollapse.sort(comparingInt(DirectoriesTreeItem::depth).reversed());
+        itemsToExpand.sort(comparingInt(DirectoriesTreeItem::depth));
 
-        DirectoriesTreeItem machineDirectoryItem = null;
+        this.applyingOverlay = true;
+        try {
+            for ( DirectoriesTreeItem item : itemsToCollapse ) {
+                item.setExpanded(false);
+            }
 
-        for ( TreeItem<String> rootChild : root.getChildren() ) {
-            if ( rootChild.getValue().equalsIgnoreCase(machineDirectory.name()) ) {
-                machineDirectoryItem = (DirectoriesTreeItem) rootChild;
+            for ( DirectoriesTreeItem item : itemsToExpand ) {
+                item.expandIfNotExpanded();
             }
         }
+        finally {
+            this.applyingOverlay = false;
+        }
+    }
 
-        if ( isNull(machineDirectoryItem) ) {
-            throw new IllegalStateException();
+    private void restoreDormant(DirectoriesTreeTabOverlay overlay) {
+        List<Directory> dormantDirectories = overlay.dormantDirectories();
+
+        if ( dormantDirectories.isEmpty() ) {
+            return;
+        }
+
+        Set<Directory> directoriesToFill = new LinkedHashSet<>();
+        for ( Directory dormantDirectory : dormantDirectories ) {
+            directoriesToFill.addAll(this.notFilledAmong(dormantDirectory.parents()));
         }
 
-        return machineDirectoryItem;
+        int generation = this.overlayGeneration;
+        this.prepareInBackground("tree restore " + overlay.tab(), new ArrayList<>(directoriesToFill), (childrenByDirectories) -> {
+            if ( generation != this.overlayGeneration ) {
+                return;
+            }
+
+            dormantDirectories.sort(comparingInt(directory -> directory.path().getNameCount()));
+
+            this.applyingOverlay = true;
+            try {
+                DirectoriesTreeItem item;
+                for ( Directory dormantDirectory : dormantDirectories ) {
+                    if ( dormantDirectory.isAbsent() ) {
+                        continue;
+                    }
+
+                    item = this.resolve(dormantDirectory, childrenByDirectories);
+                    item.expandIfNotExpanded();
+                    overlay.restored(dormantDirectory, item);
+                }
+            }
+            finally {
+                this.applyingOverlay = false;
+            }
+        });
     }
 
-    private static void fillIfNotFilled(DirectoriesTreeItem treeItem) {
-        if ( treeItem.isNotFilled() ) {
-            treeItem.fill();
+    private DirectoriesTreeItem resolve(
+            Directory directory,
+            Map<Directory, List<DirectoriesTreeItem>> childrenByDirectories) {
+        if ( directory.equals(this.machineItem.directory()) ) {
+            return this.machineItem;
+        }
+
+        DirectoriesTreeItem item = this.machineItem;
+        fillWithPrepared(item, childrenByDirectories);
+
+        for ( Directory parent : directory.parents() ) {
+            item = item.getInChildrenOrCreate(parent);
+            fillWithPrepared(item, childrenByDirectories);
         }
+
+        return item.getInChildrenOrCreate(directory);
     }
 
-    private void addInternally(Directory directory) {
-        System.out.println("[TREE] add " + directory.path());
-        for ( TreeItem<String> root : this.tabsTreeRoots.values() ) {
-            DirectoriesTreeItem machineItem = this.getMachineItemAssignedTo(root);
+    private void evictCollapsedSubtrees() {
+        List<DirectoriesTreeItem> candidates = new ArrayList<>();
+        int total = this.collectEvictionCandidates(this.machineItem, candidates);
 
-            DirectoriesTreeItem prevParentItem = machineItem;
-            DirectoriesTreeItem parentItem = null;
-            for ( Directory parent : directory.parents() ) {
-                fillIfNotFilled(prevParentItem);
-                parentItem = prevParentItem.getInChildrenOrCreate(parent);
-                prevParentItem = parentItem;
-            }
+        candidates.sort(comparingLong(DirectoriesTreeItem::collapsedAt));
 
-            if ( isNull(parentItem) ) {
-                throw new IllegalStateException();
+        long now = currentTimeMillis();
+        int evicted = 0;
+        boolean tooOld;
+        boolean overBudget;
+        for ( DirectoriesTreeItem candidate : candidates ) {
+            tooOld = now - candidate.collapsedAt() > COLLAPSED_SUBTREE_MAX_AGE;
+            overBudget = total - evicted > TREE_ITEMS_BUDGET;
+
+            if ( tooOld || overBudget ) {
+                evicted = evicted + candidate.subtreeSize() - 1;
+                candidate.evictChildren(this::onTreeItemEvicted);
             }
+        }
 
-            parentItem.getInChildrenOrCreate(directory);
-//            expandIfNotExpanded(parentItem); // 28.05.2021 commented
+        if ( NAVIGATOR_DEBUG && evicted > 0 ) {
+            System.out.println(format("[TREE] [EVICTION] items: %s, evicted: %s, %s",
+                    total, evicted, this.watches.metrics()));
         }
     }
 
-    private void removeInternally(Path path) {
-        System.out.println("[TREE] remove " + path);
-        currentThreadTrack("diarsid", (element) -> System.out.println("    " + element));
-        for ( TreeItem<String> root : this.tabsTreeRoots.values() ) {
-            DirectoriesTreeItem machineItem = this.getMachineItemAssignedTo(root);
-
-            DirectoriesTreeItem prevParentItem = machineItem;
-            DirectoriesTreeItem parentItem = null;
-            for ( Directory parent : this.fileSystem.parentsOf(path) ) {
-                parentItem = prevParentItem.getInChildrenOrNull(parent);
-                if ( isNull(parentItem) ) {
-                    continue;
+    private int collectEvictionCandidates(DirectoriesTreeItem item, List<DirectoriesTreeItem> candidates) {
+        int count = 1;
+        int childSubtreeSize;
+        for ( DirectoriesTreeItem child : item.directoryChildren() ) {
+            if ( child.isExpanded() || child.isRetainedInSubtree() || this.isOnSelectedPath(child) ) {
+                count = count + this.collectEvictionCandidates(child, candidates);
+            }
+            else {
+                childSubtreeSize = child.subtreeSize();
+                count = count + childSubtreeSize;
+                if ( childSubtreeSize > 1 ) {
+                    candidates.add(child);
                 }
-                prevParentItem = parentItem;
             }
+        }
+        return count;
+    }
 
-            if ( isNull(parentItem) ) {
-                continue;
-            }
+    private boolean isOnSelectedPath(DirectoriesTreeItem item) {
+        if ( this.selectedDirectory.isNotPresent() ) {
+            return false;
+        }
 
-            boolean foundAndRemoved = parentItem.removeInChildren(path.getFileName().normalize().toString());
+        Directory selected = this.selectedDirectory.orThrow();
+        return item.directory().isIndirectParentOf(selected);
+    }
 
-            if ( ! foundAndRemoved ) {
-                continue;
-            }
+    private void onTreeItemEvicted(DirectoriesTreeItem evictedItem) {
+        for ( DirectoriesTreeTabOverlay overlay : this.tabsOverlays.values() ) {
+            overlay.evicted(evictedItem);
+        }
+    }
 
-//            if ( this.selectedDirectory.isPresent() ) {
-//                Directory selectedDirectory = this.selectedDirectory.orThrow();
-//                Directory newSelection = selectedDirectory;
-//
-//                if ( selectedDirectory.has(path) || selectedDirectory.isDescendantOf(path) ) {
-//                    newSelection = this.fileSystem.existedParentOf(path).orElseGet(this.fileSystem::machineDirectory);
-//                }
-//
-//                this.selectInternally(newSelection);
-//            }
+    private void removeFromOverlays(DirectoriesTreeItem removedItem) {
+        for ( DirectoriesTreeTabOverlay overlay : this.tabsOverlays.values() ) {
+            overlay.removeAllUnder(removedItem);
         }
     }
 
@@ -328,39 +590,41 @@ public class DirectoriesTree implements ViewComponent {
 
         Directory directory = fsEntry.asDirectory();
 
-        for ( TreeItem<String> root : this.tabsTreeRoots.values() ) {
-            DirectoriesTreeItem machineItem = this.getMachineItemAssignedTo(root);
-
-            DirectoriesTreeItem prevParentItem = machineItem;
-            DirectoriesTreeItem parentItem = null;
-            for ( Directory parent : directory.parents() ) {
-                parentItem = prevParentItem.getInChildrenOrNull(parent);
-                if ( isNull(parentItem) ) {
-                    continue;
-                }
-                prevParentItem = parentItem;
-            }
-
+        DirectoriesTreeItem prevParentItem = this.machineItem;
+        DirectoriesTreeItem parentItem = null;
+        for ( Directory parent : directory.parents() ) {
+            parentItem = prevParentItem.getInChildrenOrNull(parent);
             if ( isNull(parentItem) ) {
                 continue;
             }
+            prevParentItem = parentItem;
+        }
 
-            boolean foundAndRemoved = parentItem.removeInChildren(directory);
+        if ( isNull(parentItem) ) {
+            return;
+        }
 
-            if ( ! foundAndRemoved ) {
-                continue;
-            }
+        DirectoriesTreeItem removedItem = parentItem.getInChildrenOrNull(directory);
 
-            if ( this.selectedDirectory.isPresent() ) {
-                Directory selectedDirectory = this.selectedDirectory.orThrow();
-                Directory newSelection = selectedDirectory;
+        boolean foundAndRemoved = parentItem.removeInChildren(directory);
 
-                if ( selectedDirectory.equals(directory) || directory.isParentOf(selectedDirectory) ) {
-                    newSelection = directory.firstExistingParent().or(this.fileSystem.machineDirectory());
-                }
+        if ( ! foundAndRemoved ) {
+            return;
+        }
+
+        if ( nonNull(removedItem) ) {
+            this.removeFromOverlays(removedItem);
+        }
 
-                this.selectDirectoryInCurrentTab(newSelection);
+        if ( this.selectedDirectory.isPresent() ) {
+            Directory selectedDirectory = this.selectedDirectory.orThrow();
+            Directory newSelection = selectedDirectory;
+
+            if ( selectedDirectory.equals(directory) || directory.isParentOf(selectedDirectory) ) {
+                newSelection = directory.firstExistingParent().or(this.fileSystem.machineDirectory());
             }
+
+            this.selectDirectoryInCurrentTab(newSelection);
         }
     }
 
@@ -369,18 +633,6 @@ public class DirectoriesTree implements ViewComponent {
         return this.treeView;
     }
 
-    private TreeItem<String> assignRootTreeItemToTab(Tab tab) {
-        Directory machineDirectory = this.fileSystem.machineDirectory();
-        DirectoriesTreeItem machineDirectoryTreeItem = new DirectoriesTreeItem(tab, machineDirectory, this::onTreeItemExpanded, this::onTreeItemCollapsed);
-
-        TreeItem<String> network = new TreeItem<>("Network");
-
-        DirectoriesTreeTabRoot rootTreeItem = new DirectoriesTreeTabRoot(machineDirectoryTreeItem, network);
-        this.tabsTreeRoots.put(tab, rootTreeItem);
-
-        return rootTreeItem;
-    }
-
     DragAndDropNodes<DirectoriesTreeCell> cellDragAndDrop() {
         return this.dragAndDropTreeCell;
     }
@@ -388,4 +640,12 @@ public class DirectoriesTree implements ViewComponent {
     DragAndDropObjectTransfer<List<FSEntry>> dragAndDropFiles() {
         return this.dragAndDropFiles;
     }
+
+    DragAndDropObjectTransfer<List<FSEntry>>.DropEligibility<Directory> filesDropEligibility() {
+        return this.filesDropEligibility;
+    }
+
+    FileOperations fileOperations() {
+        return this.fileOperations;
+    }
 }
@@ -11,12 +11,12 @@ import javafx.scene.layout.StackPane;
 
 import diarsid.filesystem.api.Directory;
 import diarsid.filesystem.api.FSEntry;
-import diarsid.filesystem.api.ProgressTracker;
 import diarsid.navigator.view.fsentry.contextmenu.FSEntryContextMenu;
 import diarsid.navigator.view.fsentry.contextmenu.FSEntryContextMenuFactory;
 import diarsid.navigator.view.icons.Icon;
 import diarsid.navigator.view.icons.Icons;
 
+import static java.util.Collections.singletonList;
 import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
 import static javafx.scene.input.ContextMenuEvent.CONTEXT_MENU_REQUESTED;
@@ -121,7 +121,12 @@ public class DirectoriesTreeCell extends TreeCell<String> {
             if ( nonNull(item) ) {
                 if ( item instanceof DirectoriesTreeItem) {
                     DirectoriesTreeItem directoryTreeItem = (DirectoriesTreeItem) item;
-                    Icon icon = this.icons.getFor(directoryTreeItem.directory());
+                    directoryTreeItem.probeDirectoriesPresenceFirst();
+                    Icon icon = this.icons.getFor(directoryTreeItem.directory(), (image) -> {
+                        if ( super.getTreeItem() == directoryTreeItem ) {
+                            this.iconView.setImage(image);
+                        }
+                    });
                     this.iconView.setImage(icon.image());
 
                     super.setText(directoryTreeItem.directory().name());
@@ -189,46 +194,39 @@ public class DirectoriesTreeCell extends TreeCell<String> {
         }
 
         if ( this.directoriesTree.dragAndDropFiles().isDragAcceptable(dragEvent) ) {
-            List<FSEntry> fsEntries = this.directoriesTree.dragAndDropFiles().get();
-
             DirectoriesTreeItem acceptingItem = this.directoriesTreeItem();
             if ( isNull(acceptingItem) ) {
                 return;
             }
-            Directory acceptingDirectory = acceptingItem.directory();
-
-            if ( fsEntries.size() == 1 ) {
-                FSEntry fsEntry = fsEntries.get(0);
-                if ( fsEntry.isFile() ) {
-                    dragEvent.acceptTransferModes(MOVE);
-                    dragEvent.consume();
-//                  super.pseudoClassStateChanged(REPLACE_CANDIDATE, true);
-                }
-                else {
-                    Directory droppedDirectory = fsEntry.asDirectory();
 
-                    if ( acceptingDirectory.canHost(droppedDirectory) ) {
-                        dragEvent.acceptTransferModes(MOVE);
-                        dragEvent.consume();
-//                      super.pseudoClassStateChanged(REPLACE_CANDIDATE, true);
-                    }
-                }
+            if ( this.directoriesTree.filesDropEligibility().isEligible(acceptingItem.directory()) ) {
+                dragEvent.acceptTransferModes(MOVE);
+                dragEvent.consume();
+//              super.pseudoClassStateChanged(REPLACE_CANDIDATE, true);
             }
-            else if ( fsEntries.size() > 1 ) {
-                boolean canNotHost = fsEntries
-                        .stream()
-                        .anyMatch(fsEntry -> fsEntry.isDirectory() && acceptingDirectory.canNotHost(fsEntry));
+        }
+    }
 
-                if ( ! canNotHost ) {
-                    dragEvent.acceptTransferModes(MOVE);
-                    dragEvent.consume();
-//                  super.pseudoClassStateChanged(REPLACE_CANDIDATE, true);
-                }
+    static boolean canHostDropped(Directory acceptingDirectory, List<FSEntry> fsEntries) {
+        if ( fsEntries.size() == 1 ) {
+            FSEntry fsEntry = fsEntries.get(0);
+            if ( fsEntry.isFile() ) {
+                return true;
             }
             else {
-
+                return acceptingDirectory.canHost(fsEntry.asDirectory());
             }
         }
+        else if ( fsEntries.size() > 1 ) {
+            boolean canNotHost = fsEntries
+                    .stream()
+                    .anyMatch(fsEntry -> fsEntry.isDirectory() && acceptingDirectory.canNotHost(fsEntry));
+
+            return ! canNotHost;
+        }
+        else {
+            return false;
+        }
     }
 
     private void onDragExited(DragEvent dragEvent) {
@@ -255,7 +253,7 @@ public class DirectoriesTreeCell extends TreeCell<String> {
                     if ( nonNull(acceptingItem) ) {
                         Directory droppedDirectory = droppedItem.directory();
                         Directory acceptingDirectory = acceptingItem.directory();
-                        acceptingDirectory.host(droppedDirectory);
+                        this.directoriesTree.fileOperations().move(singletonList(droppedDirectory), acceptingDirectory);
                     }
                     else {
                         System.out.println("DROP ACCEPTED - NO ACCEPTING ITEM!");
@@ -288,15 +286,10 @@ public class DirectoriesTreeCell extends TreeCell<String> {
             DirectoriesTreeItem acceptingItem = this.directoriesTreeItem();
             Directory acceptingDirectory = acceptingItem.directory();
 
-            if ( fsEntries.size() == 1 ) {
-                FSEntry fsEntryToMove = fsEntries.get(0);
-                acceptingDirectory.host(fsEntryToMove);
-            }
-            else if ( fsEntries.size() > 1 ) {
-                acceptingDirectory.hostAll(fsEntries, ProgressTracker.DEFAULT);
+            if ( ! fsEntries.isEmpty() ) {
+                this.directoriesTree.fileOperations().move(fsEntries, acceptingDirectory);
             }
 
-
             success = true;
         }
         else {
@@ -2,19 +2,38 @@ package diarsid.navigator.view.tree;
 
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import javafx.application.Platform;
 import javafx.beans.value.ObservableValue;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
 import javafx.scene.control.TreeItem;
 
 import diarsid.filesystem.api.Directory;
-import diarsid.navigator.model.Tab;
+import diarsid.navigator.filesystem.DirectoriesWatches;
+import diarsid.navigator.filesystem.FSChangesDispatcher;
 import diarsid.support.strings.MultilineMessage;
 
+import static java.lang.Math.min;
+import static java.lang.System.currentTimeMillis;
+import static java.util.Collections.binarySearch;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.sort;
+import static java.util.Objects.isNull;
 import static java.util.Objects.nonNull;
 import static java.util.stream.Collectors.toList;
 
+import static diarsid.navigator.Navigator.NAVIGATOR_THREADS;
+
 public class DirectoriesTreeItem extends TreeItem<String> implements Comparable<DirectoriesTreeItem> {
 
     public static final Comparator<TreeItem<String>> COMPARATOR = (item1, item2) -> {
@@ -28,113 +47,404 @@ public class DirectoriesTreeItem extends TreeItem<String> implements Comparable<
         }
     };
 
-    private static final TreeItem<String> PLACEHOLDER = new TreeItem<>("...");
+    private static final int FILL_BATCH_SIZE = 256;
 
-    private final Tab tab;
     private final Directory directory;
+    private final TreeItem<String> placeholder;
+    private final DirectoriesPresenceProbe presenceProbe;
+    private final DirectoriesWatches watches;
+    private final Function<DirectoriesTreeItem, FSChangesDispatcher.Subscription> subscribing;
     private final Consumer<DirectoriesTreeItem> onTreeItemExpanded;
     private final Consumer<DirectoriesTreeItem> onTreeItemCollapsed;
+    private final Map<String, DirectoriesTreeItem> childrenByNames;
+    private final Map<String, List<DirectoriesTreeItem>> childrenByFoldedNames;
+    private TreeItem<String> loading;
+    private int fillGeneration;
+    private int retains;
+    private long collapsedAt;
+    private FSChangesDispatcher.Subscription subscription;
 
     DirectoriesTreeItem(
-            Tab tab,
             Directory directory,
+            DirectoriesPresenceProbe presenceProbe,
+            DirectoriesWatches watches,
+            Function<DirectoriesTreeItem, FSChangesDispatcher.Subscription> subscribing,
             Consumer<DirectoriesTreeItem> onTreeItemExpanded,
             Consumer<DirectoriesTreeItem> onTreeItemCollapsed) {
         super(directory.name());
-        this.tab = tab;
         this.directory = directory;
+        this.placeholder = new TreeItem<>("...");
+        this.presenceProbe = presenceProbe;
+        this.watches = watches;
+        this.subscribing = subscribing;
         this.onTreeItemExpanded = onTreeItemExpanded;
         this.onTreeItemCollapsed = onTreeItemCollapsed;
+        this.retains = 0;
+        this.collapsedAt = 0;
+        this.childrenByNames = new HashMap<>();
+        this.childrenByFoldedNames = new HashMap<>();
+        this.fillGeneration = 0;
+
+        super.getChildren().addListener(this::onChildrenChanged);
 
-        this.setPlaceholderIfChildrenPresent();
+        Boolean directoriesPresent = this.presenceProbe.cachedPresenceOf(directory.path());
+        if ( nonNull(directoriesPresent) ) {
+            this.setPlaceholderIfChildrenPresent(directoriesPresent);
+        }
+        else {
+            super.getChildren().add(this.placeholder);
+            this.presenceProbe.probe(this);
+        }
 
         super.expandedProperty().addListener(this::onExpandedPropertyChange);
     }
 
     void fill() {
+        this.fillGeneration++;
+
         if ( this.directory.isAbsent() ) {
             super.getChildren().clear();
             return;
         }
 
-        this.directory.feedDirectories((directories) -> {
-            List<TreeItem<String>> directoryItems = directories
-                    .stream()
-                    .filter(Directory::isNotHidden)
-                    .map(this::makeFor)
-                    .sorted()
-                    .peek(DirectoriesTreeItem::setPlaceholderIfChildrenPresent)
-                    .peek(DirectoriesTreeItem::watchDirectory)
-                    .collect(toList());
-
-            if ( directoryItems.isEmpty() ) {
-                super.getChildren().clear();
-                if ( super.isExpanded() ) {
-                    super.setExpanded(false);
-                }
+        this.applyFilled(this.createItemsFor(this.listDirectories()));
+    }
+
+    void fillInBackground() {
+        int generation = ++this.fillGeneration;
+
+        if ( this.isNotFilled() ) {
+            this.loading = new TreeItem<>("loading...");
+            super.getChildren().setAll(singletonList(this.loading));
+        }
+
+        NAVIGATOR_THREADS.runNamedAsync("tree fill " + this.directory.path(), () -> {
+            List<Directory> directories;
+            try {
+                directories = this.listDirectories();
+            }
+            catch (Exception e) {
+                e.printStackTrace();
+                directories = emptyList();
+            }
+
+            List<CompletableFuture<List<DirectoriesTreeItem>>> batches = new ArrayList<>();
+            for ( int from = 0; from < directories.size(); from = from + FILL_BATCH_SIZE ) {
+                batches.add(this.createItemsInBackground(
+                        directories.subList(from, min(from + FILL_BATCH_SIZE, directories.size()))));
             }
-            else if ( this.isNotFilled() ) {
-                super.getChildren().setAll(directoryItems);
-                MultilineMessage message = new MultilineMessage("[TREE] [ITEM FILL]", "   ");
-                message.newLine().add(this.directory.path().toString());
-                super.getChildren().forEach((item) -> message.newLine().indent().add(item.getValue()));
-                System.out.println(message.compose());
+
+            CompletableFuture<?>[] allBatches = batches.toArray(new CompletableFuture<?>[0]);
+            CompletableFuture
+                    .allOf(allBatches)
+                    .whenComplete((done, failure) -> {
+                        List<DirectoriesTreeItem> items = new ArrayList<>();
+                        for ( CompletableFuture<List<DirectoriesTreeItem>> batch : batches ) {
+                            if ( ! batch.isCompletedExceptionally() ) {
+                                items.addAll(batch.join());
+                            }
+                        }
+                        sort(items);
+
+                        Platform.runLater(() -> {
+                            if ( generation == this.fillGeneration ) {
+                                this.applyFilled(items);
+                            }
+                        });
+                    });
+        });
+    }
+
+    void fillWith(List<DirectoriesTreeItem> directoryItems) {
+        this.fillGeneration++;
+        this.applyFilled(directoryItems);
+    }
+
+    private List<Directory> listDirectories() {
+        return listDirectoriesOf(this.directory);
+    }
+
+    static List<Directory> listDirectoriesOf(Directory directory) {
+        if ( directory.isAbsent() ) {
+            return emptyList();
+        }
+
+        List<Directory> directories = new ArrayList<>();
+        directory.feedDirectories(directories::addAll);
+        return directories;
+    }
+
+    private CompletableFuture<List<DirectoriesTreeItem>> createItemsInBackground(List<Directory> directories) {
+        CompletableFuture<List<DirectoriesTreeItem>> items = new CompletableFuture<>();
+
+        NAVIGATOR_THREADS.runNamedAsync("tree fill batch " + this.directory.path(), () -> {
+            try {
+                items.complete(this.createItemsFor(directories));
+            }
+            catch (Throwable t) {
+                t.printStackTrace();
+                items.completeExceptionally(t);
+            }
+        });
+
+        return items;
+    }
+
+    List<DirectoriesTreeItem> createItemsFor(List<Directory> directories) {
+        return directories
+                .stream()
+                .filter(Directory::isNotHidden)
+                .map(this::makeFor)
+                .sorted()
+                .collect(toList());
+    }
+
+    private void applyFilled(List<DirectoriesTreeItem> directoryItems) {
+        this.loading = null;
+
+        if ( ! super.isExpanded() ) {
+            this.collapsedAt = currentTimeMillis();
+        }
+
+        if ( directoryItems.isEmpty() ) {
+            super.getChildren().clear();
+            if ( super.isExpanded() ) {
+                super.setExpanded(false);
             }
-            else {
-                List<TreeItem<String>> itemsToAdd = new ArrayList<>();
-                for ( TreeItem<String> item : directoryItems ) {
-                    if ( ! this.containsNameInChildren(item.getValue()) ) {
-                        itemsToAdd.add(item);
+        }
+        else if ( this.isNotFilled() ) {
+            super.getChildren().setAll(directoryItems);
+            MultilineMessage message = new MultilineMessage("[TREE] [ITEM FILL]", "   ");
+            message.newLine().add(this.directory.path().toString());
+            super.getChildren().forEach((item) -> message.newLine().indent().add(item.getValue()));
+            System.out.println(message.compose());
+        }
+        else {
+            this.removeItemsNotIn(directoryItems);
+            this.addItems(directoryItems);
+        }
+    }
+
+    private void removeItemsNotIn(List<DirectoriesTreeItem> directoryItems) {
+        Set<String> names = new HashSet<>();
+        for ( DirectoriesTreeItem item : directoryItems ) {
+            names.add(item.getValue());
+        }
+
+        for ( DirectoriesTreeItem child : this.directoryChildren() ) {
+            if ( ! names.contains(child.getValue()) ) {
+                this.removeChild(child);
+            }
+        }
+    }
+
+    void addDirectories(List<Directory> directories) {
+        List<Directory> directoriesToAdd = new ArrayList<>();
+        for ( Directory directory : directories ) {
+            if ( ! this.containsNameInChildren(directory.name()) ) {
+                directoriesToAdd.add(directory);
+            }
+        }
+
+        this.addItems(this.createItemsFor(directoriesToAdd));
+    }
+
+    private void addItems(List<DirectoriesTreeItem> directoryItems) {
+        List<TreeItem<String>> itemsToAdd = new ArrayList<>();
+        for ( TreeItem<String> item : directoryItems ) {
+            if ( ! this.containsNameInChildren(item.getValue()) ) {
+                itemsToAdd.add(item);
+            }
+        }
+
+        if ( ! itemsToAdd.isEmpty() ) {
+            this.insertSorted(itemsToAdd);
+
+            MultilineMessage message = new MultilineMessage("[TREE] [ITEM ADD]", "   ");
+            message.newLine().add(this.directory.path().toString());
+            itemsToAdd.forEach((item) -> message.newLine().indent().add(item.getValue()));
+            System.out.println(message.compose());
+        }
+    }
+
+    private void onChildrenChanged(ListChangeListener.Change<? extends TreeItem<String>> change) {
+        while ( change.next() ) {
+            if ( change.wasPermutated() ) {
+                continue;
+            }
+
+            if ( change.wasRemoved() ) {
+                for ( TreeItem<String> removed : change.getRemoved() ) {
+                    if ( removed instanceof DirectoriesTreeItem ) {
+                        this.childrenByNames.remove(removed.getValue(), removed);
+                        this.removeFromFoldedNames((DirectoriesTreeItem) removed);
+                        ((DirectoriesTreeItem) removed).visitSubtree(DirectoriesTreeItem::detached);
                     }
                 }
+            }
 
-                if ( ! itemsToAdd.isEmpty() ) {
-                    super.getChildren().addAll(itemsToAdd);
-                    super.getChildren().sort(COMPARATOR);
-
-                    MultilineMessage message = new MultilineMessage("[TREE] [ITEM ADD]", "   ");
-                    message.newLine().add(this.directory.path().toString());
-                    itemsToAdd.forEach((item) -> message.newLine().indent().add(item.getValue()));
-                    System.out.println(message.compose());
+            if ( change.wasAdded() ) {
+                for ( TreeItem<String> added : change.getAddedSubList() ) {
+                    if ( added instanceof DirectoriesTreeItem ) {
+                        this.childrenByNames.put(added.getValue(), (DirectoriesTreeItem) added);
+                        this.childrenByFoldedNames
+                                .computeIfAbsent(foldedNameOf(added.getValue()), (name) -> new ArrayList<>(1))
+                                .add((DirectoriesTreeItem) added);
+                        ((DirectoriesTreeItem) added).attached();
+                    }
                 }
             }
-        });
+        }
+    }
+
+    private void attached() {
+        this.watches.watch(this.directory);
+        if ( isNull(this.subscription) ) {
+            this.subscription = this.subscribing.apply(this);
+        }
+    }
+
+    private void detached() {
+        this.watches.release(this.directory);
+        if ( nonNull(this.subscription) ) {
+            this.subscription.cancel();
+            this.subscription = null;
+        }
+    }
+
+    private void removeFromFoldedNames(DirectoriesTreeItem item) {
+        String foldedName = foldedNameOf(item.getValue());
+        List<DirectoriesTreeItem> namesakes = this.childrenByFoldedNames.get(foldedName);
+
+        if ( isNull(namesakes) ) {
+            return;
+        }
+
+        namesakes.remove(item);
+        if ( namesakes.isEmpty() ) {
+            this.childrenByFoldedNames.remove(foldedName);
+        }
+    }
+
+    private static String foldedNameOf(String name) {
+        return name.toLowerCase();
     }
 
     private boolean containsNameInChildren(String name) {
-        for ( TreeItem<String> item : super.getChildren() ) {
-            if ( item.getValue().equals(name) ) {
-                return true;
+        return this.childrenByNames.containsKey(name);
+    }
+
+    List<DirectoriesTreeItem> directoryChildren() {
+        List<DirectoriesTreeItem> directoryChildren = new ArrayList<>(super.getChildren().size());
+        for ( TreeItem<String> child : super.getChildren() ) {
+            if ( child instanceof DirectoriesTreeItem ) {
+                directoryChildren.add((DirectoriesTreeItem) child);
             }
         }
+        return directoryChildren;
+    }
 
-        return false;
+    int subtreeSize() {
+        int size = 1;
+        for ( TreeItem<String> child : super.getChildren() ) {
+            if ( child instanceof DirectoriesTreeItem ) {
+                size = size + ((DirectoriesTreeItem) child).subtreeSize();
+            }
+        }
+        return size;
+    }
+
+    long collapsedAt() {
+        return this.collapsedAt;
+    }
+
+    void evictChildren(Consumer<DirectoriesTreeItem> onEvicted) {
+        for ( TreeItem<String> child : super.getChildren() ) {
+            if ( child instanceof DirectoriesTreeItem ) {
+                ((DirectoriesTreeItem) child).visitSubtree(onEvicted);
+            }
+        }
+
+        this.fillGeneration++;
+        this.loading = null;
+        super.getChildren().setAll(singletonList(this.placeholder));
     }
 
-    private void watchDirectory() {
-        this.directory.watch();
+    private void visitSubtree(Consumer<DirectoriesTreeItem> visitor) {
+        visitor.accept(this);
+        for ( TreeItem<String> child : super.getChildren() ) {
+            if ( child instanceof DirectoriesTreeItem ) {
+                ((DirectoriesTreeItem) child).visitSubtree(visitor);
+            }
+        }
     }
 
     private DirectoriesTreeItem makeFor(Directory directory) {
-        return new DirectoriesTreeItem(this.tab, directory, this.onTreeItemExpanded, this.onTreeItemCollapsed);
+        return new DirectoriesTreeItem(
+                directory,
+                this.presenceProbe,
+                this.watches,
+                this.subscribing,
+                this.onTreeItemExpanded,
+                this.onTreeItemCollapsed);
     }
 
     public Directory directory() {
         return this.directory;
     }
 
-    public Tab tab() {
-        return this.tab;
+    void retain() {
+        this.retains++;
+    }
+
+    void release() {
+        if ( this.retains > 0 ) {
+            this.retains--;
+        }
+    }
+
+    boolean isRetained() {
+        return this.retains > 0;
+    }
+
+    boolean isRetainedInSubtree() {
+        if ( this.isRetained() ) {
+            return true;
+        }
+
+        for ( TreeItem<String> child : super.getChildren() ) {
+            if ( child instanceof DirectoriesTreeItem && ((DirectoriesTreeItem) child).isRetainedInSubtree() ) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    int depth() {
+        int depth = 0;
+        TreeItem<String> parent = super.getParent();
+        while ( nonNull(parent) ) {
+            depth++;
+            parent = parent.getParent();
+        }
+        return depth;
+    }
+
+    void probeDirectoriesPresenceFirst() {
+        this.presenceProbe.prioritize(this);
     }
 
-    private void setPlaceholderIfChildrenPresent() {
-        this.directory.checkDirectoriesPresence(this::setPlaceholderIfChildrenPresent);
+    void applyDirectoriesPresence(boolean childrenPresent) {
+        if ( super.getChildren().isEmpty() || super.getChildren().get(0) == this.placeholder ) {
+            this.setPlaceholderIfChildrenPresent(childrenPresent);
+        }
     }
 
     private void setPlaceholderIfChildrenPresent(boolean childrenPresent) {
         super.getChildren().clear();
         if ( childrenPresent ) {
-            super.getChildren().add(PLACEHOLDER);
+            super.getChildren().add(this.placeholder);
         }
     }
 
@@ -148,21 +458,18 @@ public class DirectoriesTreeItem extends TreeItem<String> implements Comparable<
     }
 
     DirectoriesTreeItem getInChildrenOrNull(Directory someDirectory) {
-        for ( TreeItem<String> child : super.getChildren() ) {
-            if ( child.getValue().equalsIgnoreCase(someDirectory.name()) ) {
-                return (DirectoriesTreeItem) child;
-            }
-        }
-        return null;
+        return this.getInChildrenOrNull(someDirectory.name());
     }
 
     DirectoriesTreeItem getInChildrenOrNull(String someDirectory) {
-        for ( TreeItem<String> child : super.getChildren() ) {
-            if ( child.getValue().equalsIgnoreCase(someDirectory) ) {
-                return (DirectoriesTreeItem) child;
-            }
+        DirectoriesTreeItem child = this.childrenByNames.get(someDirectory);
+
+        if ( nonNull(child) ) {
+            return child;
         }
-        return null;
+
+        List<DirectoriesTreeItem> namesakes = this.childrenByFoldedNames.get(foldedNameOf(someDirectory));
+        return isNull(namesakes) ? null : namesakes.get(0);
     }
 
     DirectoriesTreeItem getInChildrenOrCreate(Directory someDirectory) {
@@ -178,8 +485,7 @@ public class DirectoriesTreeItem extends TreeItem<String> implements Comparable<
 
         if ( this.directory.isIndirectParentOf(someDirectory) ) {
             directoryItem = this.makeFor(someDirectory);
-            super.getChildren().add(directoryItem);
-            super.getChildren().sort(COMPARATOR);
+            this.insertSorted(singletonList(directoryItem));
             return directoryItem;
         }
         else {
@@ -187,6 +493,32 @@ public class DirectoriesTreeItem extends TreeItem<String> implements Comparable<
         }
     }
 
+    private void insertSorted(List<TreeItem<String>> itemsToInsert) {
+        List<TreeItem<String>> batch = new ArrayList<>(itemsToInsert);
+        batch.sort(COMPARATOR);
+
+        ObservableList<TreeItem<String>> children = super.getChildren();
+        int[] insertionIndexes = new int[batch.size()];
+        int index;
+        for ( int i = 0; i < batch.size(); i++ ) {
+            index = binarySearch(children, batch.get(i), COMPARATOR);
+            insertionIndexes[i] = index < 0 ? -(index + 1) : index + 1;
+        }
+
+        // children list is owned by TreeItem, so items that fall into the same
+        // gap are inserted as one run, runs go from the end to keep indexes valid
+        int runEnd = batch.size();
+        int runStart;
+        while ( runEnd > 0 ) {
+            runStart = runEnd - 1;
+            while ( runStart > 0 && insertionIndexes[runStart - 1] == insertionIndexes[runEnd - 1] ) {
+                runStart--;
+            }
+            children.addAll(insertionIndexes[runStart], batch.subList(runStart, runEnd));
+            runEnd = runStart;
+        }
+    }
+
     void expandIfNotExpanded() {
         if ( this.isExpanded() ) {
             return;
@@ -200,11 +532,16 @@ public class DirectoriesTreeItem extends TreeItem<String> implements Comparable<
     }
 
     boolean isFilled() {
-        return super.getChildren().size() > 1 || ( ! super.getChildren().contains(PLACEHOLDER) );
+        return ! this.isNotFilled();
     }
 
     boolean isNotFilled() {
-        return super.getChildren().size() == 1 && super.getChildren().contains(PLACEHOLDER);
+        if ( super.getChildren().size() != 1 ) {
+            return false;
+        }
+
+        TreeItem<String> child = super.getChildren().get(0);
+        return child == this.placeholder || ( nonNull(this.loading) && child == this.loading );
     }
 
     boolean removeInChildren(String name) {
@@ -216,25 +553,7 @@ public class DirectoriesTreeItem extends TreeItem<String> implements Comparable<
             return true;
         }
 
-        TreeItem<String> childToRemove = null;
-
-        for ( TreeItem<String> child : super.getChildren() ) {
-            if ( child.getValue().equalsIgnoreCase(name) ) {
-                childToRemove = child;
-                break;
-            }
-        }
-
-        boolean removed;
-        if ( nonNull(childToRemove) ) {
-            super.getChildren().remove(childToRemove);
-            removed = true;
-        }
-        else {
-            removed = false;
-        }
-
-        return removed;
+        return this.removeChild(this.getInChildrenOrNull(name));
     }
 
     boolean removeInChildren(Directory someDirectory) {
@@ -242,33 +561,38 @@ public class DirectoriesTreeItem extends TreeItem<String> implements Comparable<
             this.fill();
         }
 
-        TreeItem<String> childToRemove = null;
+        return this.removeChild(this.getInChildrenOrNull(someDirectory));
+    }
 
-        for ( TreeItem<String> child : super.getChildren() ) {
-            if ( child.getValue().equalsIgnoreCase(someDirectory.name()) ) {
-                childToRemove = child;
-                break;
-            }
+    private boolean removeChild(DirectoriesTreeItem childToRemove) {
+        if ( isNull(childToRemove) ) {
+            return false;
         }
 
-        boolean removed;
-        if ( nonNull(childToRemove) ) {
-            super.getChildren().remove(childToRemove);
-            removed = true;
+        ObservableList<TreeItem<String>> children = super.getChildren();
+        int index = binarySearch(children, childToRemove, COMPARATOR);
+
+        if ( index < 0 || children.get(index) != childToRemove ) {
+            index = children.indexOf(childToRemove);
         }
-        else {
-            removed = false;
+
+        if ( index < 0 ) {
+            return false;
         }
 
-        return removed;
+        children.remove(index);
+        return true;
     }
 
     private void onTreeItemExpanded() {
-        this.fill();
+        if ( this.isNotFilled() && isNull(this.loading) ) {
+            this.fillInBackground();
+        }
         this.onTreeItemExpanded.accept(this);
     }
 
     private void onTreeItemCollapsed() {
+        this.collapsedAt = currentTimeMillis();
         this.onTreeItemCollapsed.accept(this);
     }
 
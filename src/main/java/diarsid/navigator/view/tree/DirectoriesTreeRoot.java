@@ -2,9 +2,9 @@ package diarsid.navigator.view.tree;
 
 import javafx.scene.control.TreeItem;
 
-public class DirectoriesTreeTabRoot extends TreeItem<String> {
+public class DirectoriesTreeRoot extends TreeItem<String> {
 
-    public DirectoriesTreeTabRoot(DirectoriesTreeItem machineDirectoryTreeItem, TreeItem<String> network) {
+    public DirectoriesTreeRoot(DirectoriesTreeItem machineDirectoryTreeItem, TreeItem<String> network) {
         super();
         this.setExpanded(true);
         this.getChildren().add(machineDirectoryTreeItem);
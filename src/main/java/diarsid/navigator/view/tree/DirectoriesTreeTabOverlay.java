@@ -0,0 +1,89 @@
+package diarsid.navigator.view.tree;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import diarsid.filesystem.api.Directory;
+import diarsid.navigator.model.Tab;
+
+import static java.util.stream.Collectors.toList;
+
+class DirectoriesTreeTabOverlay {
+
+    private final Tab tab;
+    private final Set<DirectoriesTreeItem> expandedItems;
+    private final Set<Directory> dormantDirectories;
+
+    DirectoriesTreeTabOverlay(Tab tab) {
+        this.tab = tab;
+        this.expandedItems = new LinkedHashSet<>();
+        this.dormantDirectories = new LinkedHashSet<>();
+    }
+
+    Tab tab() {
+        return this.tab;
+    }
+
+    void expanded(DirectoriesTreeItem item) {
+        if ( this.expandedItems.add(item) ) {
+            item.retain();
+        }
+    }
+
+    void collapsed(DirectoriesTreeItem item) {
+        if ( this.expandedItems.remove(item) ) {
+            item.release();
+        }
+    }
+
+    boolean isExpanded(DirectoriesTreeItem item) {
+        return this.expandedItems.contains(item);
+    }
+
+    List<DirectoriesTreeItem> expandedNotIn(DirectoriesTreeTabOverlay other) {
+        return this.expandedItems
+                .stream()
+                .filter(item -> ! other.expandedItems.contains(item))
+                .collect(toList());
+    }
+
+    void evicted(DirectoriesTreeItem item) {
+        if ( this.expandedItems.remove(item) ) {
+            item.release();
+            this.dormantDirectories.add(item.directory());
+        }
+    }
+
+    List<Directory> expandedDirectories() {
+        return this.expandedItems
+                .stream()
+                .map(DirectoriesTreeItem::directory)
+                .collect(toList());
+    }
+
+    List<Directory> dormantDirectories() {
+        return new ArrayList<>(this.dormantDirectories);
+    }
+
+    void restored(Directory directory, DirectoriesTreeItem item) {
+        if ( this.dormantDirectories.remove(directory) ) {
+            this.expanded(item);
+        }
+    }
+
+    void removeAllUnder(DirectoriesTreeItem removedItem) {
+        Directory removedDirectory = removedItem.directory();
+        this.dormantDirectories.removeIf(directory ->
+                directory.equals(removedDirectory) || removedDirectory.isIndirectParentOf(directory));
+
+        this.expandedItems.removeIf(item -> {
+            boolean under = item.equals(removedItem) || removedItem.isParentOf(item);
+            if ( under ) {
+                item.release();
+            }
+            return under;
+        });
+    }
+}
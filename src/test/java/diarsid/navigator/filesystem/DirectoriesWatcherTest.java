@@ -0,0 +1,183 @@
+package diarsid.navigator.filesystem;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static java.util.Collections.emptySet;
+import static java.util.stream.Collectors.toCollection;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DirectoriesWatcherTest {
+
+    private static final int WRITERS = 4;
+    private static final int OPERATIONS_PER_WRITER = 5_000;
+    private static final int HOT_DIRECTORY_OPERATIONS = 3_000;
+    private static final long PROCESSING_MILLIS = 100;
+    private static final long STALL_MILLIS = 200;
+    private static final long QUIET_MILLIS = 1000;
+
+    private Path root;
+    private NavigableSet<String> known;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        this.root = Files.createTempDirectory("navigator-watch-storm");
+        this.known = new TreeSet<>();
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        deleteRecursively(this.root);
+    }
+
+    @Test
+    public void stormWithOverflowsLosesNoChanges() throws Exception {
+        try (DirectoriesWatcher watcher = new DirectoriesWatcher(this::onChanged)) {
+            watcher.register(this.root, true);
+            Path hotDirectory = Files.createDirectory(this.root.resolve("hot"));
+            while ( watcher.processPending(QUIET_MILLIS) ) {
+                // let the hot directory be announced and watched
+            }
+
+            /* nothing is processed while the hot directory is hammered, so its key queue overflows */
+            hammer(hotDirectory, HOT_DIRECTORY_OPERATIONS);
+
+            List<Thread> writers = new ArrayList<>();
+            for ( int i = 0; i < WRITERS; i++ ) {
+                Path writerRoot = Files.createDirectory(this.root.resolve("writer-" + i));
+                Random random = new Random(i);
+                Thread writer = new Thread(() -> storm(writerRoot, OPERATIONS_PER_WRITER, random), "storm-writer-" + i);
+                writers.add(writer);
+                writer.start();
+            }
+
+            Thread hotWriter = new Thread(() -> hammer(hotDirectory, HOT_DIRECTORY_OPERATIONS), "storm-writer-hot");
+            writers.add(hotWriter);
+            hotWriter.start();
+
+            while ( writers.stream().anyMatch(Thread::isAlive) ) {
+                watcher.processPending(PROCESSING_MILLIS);
+                Thread.sleep(STALL_MILLIS);
+            }
+
+            for ( Thread writer : writers ) {
+                writer.join();
+            }
+
+            while ( watcher.processPending(QUIET_MILLIS) ) {
+                // drain events left after writers have finished
+            }
+
+            NavigableSet<String> actual;
+            try (Stream<Path> paths = Files.walk(this.root)) {
+                actual = paths
+                        .filter(path -> ! path.equals(this.root))
+                        .map(Path::toString)
+                        .collect(toCollection(TreeSet::new));
+            }
+
+            NavigableSet<String> missing = new TreeSet<>(actual);
+            missing.removeAll(this.known);
+            NavigableSet<String> extra = new TreeSet<>(this.known);
+            extra.removeAll(actual);
+
+            assertTrue(watcher.overflows() > 0, "storm has not caused any overflow");
+            assertTrue(watcher.rescans() > 0, "overflow has not caused any rescan");
+            assertEquals(emptySet(), missing, "entries missing after storm");
+            assertEquals(emptySet(), extra, "extra entries after storm");
+        }
+    }
+
+    private void onChanged(Path directory, List<Path> added, List<Path> removed) {
+        String removedPath;
+        char separator;
+        for ( Path path : removed ) {
+            removedPath = path.toString();
+            separator = path.getFileSystem().getSeparator().charAt(0);
+            this.known.remove(removedPath);
+            this.known.subSet(removedPath + separator, removedPath + (char) (separator + 1)).clear();
+        }
+        for ( Path path : added ) {
+            this.known.add(path.toString());
+        }
+    }
+
+    private static void storm(Path base, int operations, Random random) {
+        List<Path> directories = new ArrayList<>();
+        List<Path> files = new ArrayList<>();
+        directories.add(base);
+
+        Path directory;
+        Path file;
+        int operation;
+        for ( int i = 0; i < operations; i++ ) {
+            operation = random.nextInt(10);
+            directory = directories.get(random.nextInt(directories.size()));
+            try {
+                if ( operation < 2 ) {
+                    directories.add(Files.createDirectory(directory.resolve("d" + i)));
+                }
+                else if ( operation < 6 ) {
+                    files.add(Files.createFile(directory.resolve("f" + i)));
+                }
+                else if ( operation < 8 && ! files.isEmpty() ) {
+                    Files.deleteIfExists(files.remove(random.nextInt(files.size())));
+                }
+                else if ( operation < 9 && ! files.isEmpty() ) {
+                    file = files.remove(random.nextInt(files.size()));
+                    files.add(Files.move(file, file.resolveSibling("r" + i)));
+                }
+                else if ( directories.size() > 1 && random.nextInt(10) == 0 ) {
+                    directory = directories.get(1 + random.nextInt(directories.size() - 1));
+                    deleteRecursively(directory);
+                    Path deleted = directory;
+                    directories.removeIf(path -> path.startsWith(deleted));
+                    files.removeIf(path -> path.startsWith(deleted));
+                }
+            }
+            catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static void hammer(Path directory, int operations) {
+        String prefix = Thread.currentThread().getName();
+        for ( int i = 0; i < operations; i++ ) {
+            try {
+                if ( i % 3 == 2 ) {
+                    Files.deleteIfExists(directory.resolve(prefix + "-h" + (i - 1)));
+                }
+                else {
+                    Files.createFile(directory.resolve(prefix + "-h" + i));
+                }
+            }
+            catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static void deleteRecursively(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            List<Path> reversed = paths.sorted(Comparator.reverseOrder()).collect(toCollection(ArrayList::new));
+            for ( Path path : reversed ) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+}